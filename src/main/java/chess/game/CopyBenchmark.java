@@ -0,0 +1,88 @@
+package chess.game;
+
+import chess.pieces.Figure;
+import chess.pieces.King;
+import chess.pieces.Rook;
+import chess.util.Color;
+import chess.util.Coordinate;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Compares cost of copying a position for search. Old way creates every figure with reflection, which also creates new icon for every figure,
+ * and then calculates bitboards of the copy. New way is {@link Position#Position(Position)}. Round trip through {@link PositionSnapshot}, which is
+ * how positions are handed to other threads, is measured too.
+ * <p>
+ * Usage: {@code CopyBenchmark [iterations] [name or FEN]}, reference position names are the ones from {@link Perft#REFERENCE}.
+ */
+public class CopyBenchmark {
+
+    /**
+     * Copies position the way {@link Position#copy()} used to, with reflection and new icons.
+     */
+    private static Position reflectionCopy(Position position) {
+        Figure[][] copy = new Figure[8][8];
+        try {
+            for(int i = 0; i < 8; i++) {
+                for(int j = 0; j < 8; j++) {
+                    Figure f = position.getFigure(i, j);
+                    if(f == null) {
+                        continue;
+                    }
+                    copy[i][j] = f.getClass().getDeclaredConstructor(Color.class, Coordinate.class).newInstance(f.getColor(), new Coordinate(i, j));
+                    if(f instanceof Rook) {
+                        ((Rook) copy[i][j]).setMoved(((Rook) f).isMoved());
+                    } else if(f instanceof King) {
+                        ((King) copy[i][j]).setMoved(((King) f).isMoved());
+                        ((King) copy[i][j]).setCastled(((King) f).isCastled());
+                        ((King) copy[i][j]).moveDescription = ((King) f).moveDescription;
+                        ((King) copy[i][j]).movesAfterCastling = ((King) f).movesAfterCastling;
+                    }
+                }
+            }
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        return new Position(position.getPlayerWhite(), copy, position.isWhiteToMove);
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        String fen = Fen.START;
+        if(args.length > 1) {
+            fen = args[1];
+            for(Object[] reference : Perft.REFERENCE) {
+                if(reference[0].equals(args[1])) {
+                    fen = (String) reference[1];
+                }
+            }
+        }
+        Position position = Fen.parse(fen);
+
+        // two rounds, first one warms up the JIT
+        for(int round = 0; round < 2; round++) {
+            long checksum = 0;
+            long start = System.nanoTime();
+            for(int i = 0; i < iterations; i++) {
+                checksum += reflectionCopy(position).getKey();
+            }
+            long reflection = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for(int i = 0; i < iterations; i++) {
+                checksum += new Position(position).getKey();
+            }
+            long copyConstructor = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for(int i = 0; i < iterations; i++) {
+                checksum += Position.fromSnapshot(position.toSnapshot()).getKey();
+            }
+            long snapshot = System.nanoTime() - start;
+
+            System.out.printf("round %d: reflection copy %.0f ns, copy constructor %.0f ns, %.1fx faster, snapshot round trip %.0f ns (checksum %d)%n",
+                    round + 1, (double) reflection / iterations, (double) copyConstructor / iterations, (double) reflection / copyConstructor,
+                    (double) snapshot / iterations, checksum);
+        }
+    }
+}
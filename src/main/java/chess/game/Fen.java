@@ -0,0 +1,112 @@
+package chess.game;
+
+import chess.pieces.Bishop;
+import chess.pieces.Figure;
+import chess.pieces.King;
+import chess.pieces.Knight;
+import chess.pieces.Pawn;
+import chess.pieces.Queen;
+import chess.pieces.Rook;
+import chess.util.Color;
+import chess.util.Coordinate;
+
+/**
+ * Class creates {@link Position} from Forsyth-Edwards Notation (FEN), for example "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1".
+ * Player white is always on the down side of the board, so the first rank of FEN is row 0 of {@link Position}.
+ * Castling rights are set through {@link King#setMoved} and {@link Rook#setMoved}, same as they would be after the game.
+ */
+public class Fen {
+
+    /**
+     * FEN of the starting position.
+     */
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    /**
+     * Creates position from given FEN. Move counters are ignored.
+     * @throws IllegalArgumentException if FEN is not valid
+     */
+    public static Position parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if(fields.length < 2) {
+            throw new IllegalArgumentException("FEN must have at least piece placement and side to move: " + fen);
+        }
+        String[] rows = fields[0].split("/");
+        if(rows.length != 8) {
+            throw new IllegalArgumentException("FEN must have 8 ranks: " + fen);
+        }
+
+        Figure[][] figures = new Figure[8][8];
+        for(int x = 0; x < 8; x++) {
+            int y = 0;
+            for(char c : rows[x].toCharArray()) {
+                if(Character.isDigit(c)) {
+                    y += c - '0';
+                    continue;
+                }
+                if(y > 7) {
+                    throw new IllegalArgumentException("Too many squares in rank " + rows[x]);
+                }
+                figures[x][y] = createFigure(c, new Coordinate(x, y));
+                y++;
+            }
+            if(y != 8) {
+                throw new IllegalArgumentException("Rank must have 8 squares: " + rows[x]);
+            }
+        }
+
+        String castling = fields.length > 2 ? fields[2] : "-";
+        setCastling(figures, Color.WHITE, 7, castling.indexOf('K') >= 0, castling.indexOf('Q') >= 0);
+        setCastling(figures, Color.BLACK, 0, castling.indexOf('k') >= 0, castling.indexOf('q') >= 0);
+
+        boolean isWhiteToMove = fields[1].equals("w");
+        Position position = new Position(true, figures, isWhiteToMove);
+        if(fields.length > 3 && !fields[3].equals("-")) {
+            // FEN gives square behind the pawn, position keeps square of the pawn
+            position.enPassant.enPassantAllowed = true;
+            position.enPassant.x = isWhiteToMove ? 3 : 4;
+            position.enPassant.y = fields[3].charAt(0) - 'a';
+        }
+        return position;
+    }
+
+    /**
+     * Marks king and rooks of given color as moved if they lost castling rights.
+     * @param x row of the king and rooks
+     */
+    private static void setCastling(Figure[][] figures, Color color, int x, boolean kingside, boolean queenside) {
+        Figure king = figures[x][4];
+        if(king instanceof King && king.getColor() == color && !kingside && !queenside) {
+            ((King) king).setMoved(1);
+        }
+        if(figures[x][7] instanceof Rook && figures[x][7].getColor() == color && !kingside) {
+            ((Rook) figures[x][7]).setMoved(1);
+        }
+        if(figures[x][0] instanceof Rook && figures[x][0].getColor() == color && !queenside) {
+            ((Rook) figures[x][0]).setMoved(1);
+        }
+    }
+
+    /**
+     * Creates figure for given FEN symbol, upper case for white and lower case for black.
+     */
+    private static Figure createFigure(char symbol, Coordinate coordinate) {
+        Color color = Character.isUpperCase(symbol) ? Color.WHITE : Color.BLACK;
+        switch(Character.toUpperCase(symbol)) {
+            case 'P':
+                return new Pawn(color, coordinate);
+            case 'N':
+                return new Knight(color, coordinate);
+            case 'B':
+                return new Bishop(color, coordinate);
+            case 'R':
+                return new Rook(color, coordinate);
+            case 'Q':
+                return new Queen(color, coordinate);
+            case 'K':
+                return new King(color, coordinate);
+            default:
+                throw new IllegalArgumentException("Invalid piece symbol " + symbol);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package chess.game;
+
+import chess.pieces.Figure;
+import chess.util.Bitboards;
+import chess.util.Color;
+import chess.util.Coordinate;
+import chess.util.PackedMove;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Legal move generator that works on bitboards of {@link Position}. Before generating moves it calculates pieces that give check to the king and
+ * pieces that are pinned to the king, so every generated move is legal and there is no need to make the move and check whether the king is attacked.
+ * The only exception is en passant, which is checked separately because it removes two pieces from the same row.
+ */
+public class MoveGenerator {
+
+    /**
+     * Generate all moves.
+     */
+    public static final int ALL = 0;
+
+    /**
+     * Generate only captures (en passant included) and promotions.
+     */
+    public static final int CAPTURES = 1;
+
+    /**
+     * Generate only moves that are neither captures nor promotions.
+     */
+    public static final int QUIETS = 2;
+
+    /**
+     * Generates all legal moves of given color into given buffer. Pawns promote only to queen, same as {@link Figure#move}.
+     * @param moves buffer with at least {@link PackedMove#MAX_MOVES} elements
+     * @return number of generated moves
+     */
+    public static int generate(Position position, Color color, int[] moves) {
+        return generate(position, color, moves, false);
+    }
+
+    /**
+     * Generates all legal moves of given color into given buffer.
+     * @param moves buffer with at least {@link PackedMove#MAX_MOVES} elements
+     * @param underPromotions if true promotions to rook, bishop and knight are also generated
+     * @return number of generated moves
+     */
+    public static int generate(Position position, Color color, int[] moves, boolean underPromotions) {
+        return generate(position, color, moves, 0, ALL, -1L, underPromotions);
+    }
+
+    /**
+     * Generates legal moves of given type and color into given buffer, starting at given index. Pawns promote only to queen.
+     * @param start index of the buffer where first move is stored
+     * @param type {@link MoveGenerator#ALL}, {@link MoveGenerator#CAPTURES} or {@link MoveGenerator#QUIETS}
+     * @param from bitboard of pieces whose moves are generated, -1 for all pieces
+     * @return index after the last generated move
+     */
+    public static int generate(Position position, Color color, int[] moves, int start, int type, long from) {
+        return generate(position, color, moves, start, type, from, false);
+    }
+
+    private static int generate(Position position, Color color, int[] moves, int start, int type, long from, boolean underPromotions) {
+        Color opponent = color == Color.WHITE ? Color.BLACK : Color.WHITE;
+        long own = position.getOccupancy(color);
+        long enemy = position.getOccupancy(opponent);
+        long occupied = position.getOccupied();
+        int king = position.getKingSquare(color);
+        if(king < 0) {
+            return start;
+        }
+        long kingBitboard = Bitboards.bit(king);
+        int count = start;
+
+        // squares pieces other than pawns may move to
+        long targetsOfType = type == CAPTURES ? enemy : type == QUIETS ? ~occupied : -1L;
+
+        long checkers = attackers(position, king, opponent, occupied);
+        long pinned = pinned(position, king, color, opponent);
+
+        // king moves, squares are checked without the king so sliders attack through the square king is leaving
+        long occupiedWithoutKing = occupied & ~kingBitboard;
+        long targets = (from & kingBitboard) != 0 ? Bitboards.KING_ATTACKS[king] & ~own & targetsOfType : 0;
+        while(targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            if(!isAttacked(position, to, opponent, occupiedWithoutKing)) {
+                moves[count++] = PackedMove.encode(king, to, position.getPiece(king), position.getPiece(to), Bitboards.EMPTY, 0);
+            }
+            targets &= targets - 1;
+        }
+
+        if(Long.bitCount(checkers) > 1) {
+            return count;
+        }
+
+        long allowed;
+        if(checkers != 0) {
+            int checker = Long.numberOfTrailingZeros(checkers);
+            allowed = checkers | Bitboards.between(king, checker);
+        } else {
+            allowed = ~own;
+            if(type != CAPTURES && (from & kingBitboard) != 0) {
+                count = generateCastling(position, color, opponent, king, moves, count, true);
+                count = generateCastling(position, color, opponent, king, moves, count, false);
+            }
+        }
+
+        // knights, pinned knight can never move
+        long knights = position.getPieces(color, Bitboards.KNIGHT) & ~pinned & from;
+        while(knights != 0) {
+            int square = Long.numberOfTrailingZeros(knights);
+            count = addMoves(position, square, Bitboards.KNIGHT_ATTACKS[square] & allowed & targetsOfType, moves, count);
+            knights &= knights - 1;
+        }
+
+        // sliders, pinned slider can move only along the pin line
+        long sliders = (position.getPieces(color, Bitboards.BISHOP) | position.getPieces(color, Bitboards.ROOK) | position.getPieces(color, Bitboards.QUEEN)) & from;
+        while(sliders != 0) {
+            int square = Long.numberOfTrailingZeros(sliders);
+            long attacks = position.attacksFrom(square) & allowed & targetsOfType;
+            if((pinned & Bitboards.bit(square)) != 0) {
+                attacks &= Bitboards.line(king, square);
+            }
+            count = addMoves(position, square, attacks, moves, count);
+            sliders &= sliders - 1;
+        }
+
+        // pawns
+        int direction = position.pawnDirection(color);
+        int step = direction == Bitboards.UP ? -8 : 8;
+        int startRow = direction == Bitboards.UP ? 6 : 1;
+        int promotionRow = direction == Bitboards.UP ? 0 : 7;
+        int queen = Bitboards.pieceIndex(color, Bitboards.QUEEN);
+        long pawns = position.getPieces(color, Bitboards.PAWN) & from;
+        while(pawns != 0) {
+            int square = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            int piece = position.getPiece(square);
+            long pinLine = (pinned & Bitboards.bit(square)) != 0 ? Bitboards.line(king, square) : -1L;
+            boolean promotes = Bitboards.x(square + step) == promotionRow;
+
+            long targetsOfPawn = type != QUIETS ? Bitboards.PAWN_ATTACKS[direction][square] & enemy : 0;
+            int push = square + step;
+            if((occupied & Bitboards.bit(push)) == 0) {
+                if(type == ALL || (type == CAPTURES) == promotes) {
+                    targetsOfPawn |= Bitboards.bit(push);
+                }
+                if(type != CAPTURES && Bitboards.x(square) == startRow && (occupied & Bitboards.bit(push + step)) == 0) {
+                    long doublePush = Bitboards.bit(push + step) & allowed & pinLine;
+                    if(doublePush != 0) {
+                        moves[count++] = PackedMove.encode(square, push + step, piece, Bitboards.EMPTY, Bitboards.EMPTY, PackedMove.DOUBLE_PUSH);
+                    }
+                }
+            }
+            targetsOfPawn &= allowed & pinLine;
+            while(targetsOfPawn != 0) {
+                int to = Long.numberOfTrailingZeros(targetsOfPawn);
+                targetsOfPawn &= targetsOfPawn - 1;
+                int captured = position.getPiece(to);
+                if(promotes) {
+                    moves[count++] = PackedMove.encode(square, to, piece, captured, queen, 0);
+                    if(underPromotions) {
+                        for(int promotion = Bitboards.ROOK; promotion >= Bitboards.KNIGHT; promotion--) {
+                            moves[count++] = PackedMove.encode(square, to, piece, captured, Bitboards.pieceIndex(color, promotion), 0);
+                        }
+                    }
+                } else {
+                    moves[count++] = PackedMove.encode(square, to, piece, captured, Bitboards.EMPTY, 0);
+                }
+            }
+        }
+
+        if(type != QUIETS) {
+            count = generateEnPassant(position, color, opponent, king, from, moves, count);
+        }
+        return count;
+    }
+
+    /**
+     * Returns all pieces of given color that attack given square.
+     * @param occupied occupancy used for slider attacks
+     */
+    static long attackers(Position position, int square, Color color, long occupied) {
+        Color opponent = color == Color.WHITE ? Color.BLACK : Color.WHITE;
+        long queens = position.getPieces(color, Bitboards.QUEEN);
+        return (Bitboards.PAWN_ATTACKS[position.pawnDirection(opponent)][square] & position.getPieces(color, Bitboards.PAWN))
+                | (Bitboards.KNIGHT_ATTACKS[square] & position.getPieces(color, Bitboards.KNIGHT))
+                | (Bitboards.KING_ATTACKS[square] & position.getPieces(color, Bitboards.KING))
+                | (Bitboards.bishopAttacks(square, occupied) & (position.getPieces(color, Bitboards.BISHOP) | queens))
+                | (Bitboards.rookAttacks(square, occupied) & (position.getPieces(color, Bitboards.ROOK) | queens));
+    }
+
+    /**
+     * Checks whether some piece of given color attacks given square. Looks from the square outwards, cheapest pieces first,
+     * and stops at the first attacker found.
+     * @param occupied occupancy used for slider attacks
+     */
+    static boolean isAttacked(Position position, int square, Color color, long occupied) {
+        Color opponent = color == Color.WHITE ? Color.BLACK : Color.WHITE;
+        if((Bitboards.KNIGHT_ATTACKS[square] & position.getPieces(color, Bitboards.KNIGHT)) != 0
+                || (Bitboards.PAWN_ATTACKS[position.pawnDirection(opponent)][square] & position.getPieces(color, Bitboards.PAWN)) != 0
+                || (Bitboards.KING_ATTACKS[square] & position.getPieces(color, Bitboards.KING)) != 0) {
+            return true;
+        }
+        long queens = position.getPieces(color, Bitboards.QUEEN);
+        long bishops = position.getPieces(color, Bitboards.BISHOP) | queens;
+        if(bishops != 0 && (Bitboards.bishopAttacks(square, occupied) & bishops) != 0) {
+            return true;
+        }
+        long rooks = position.getPieces(color, Bitboards.ROOK) | queens;
+        return rooks != 0 && (Bitboards.rookAttacks(square, occupied) & rooks) != 0;
+    }
+
+    /**
+     * Returns pieces of given color that are the only piece between their king and some enemy slider.
+     */
+    private static long pinned(Position position, int king, Color color, Color opponent) {
+        long queens = position.getPieces(opponent, Bitboards.QUEEN);
+        long snipers = (Bitboards.rookAttacks(king, 0) & (position.getPieces(opponent, Bitboards.ROOK) | queens))
+                | (Bitboards.bishopAttacks(king, 0) & (position.getPieces(opponent, Bitboards.BISHOP) | queens));
+        long pinned = 0;
+        long occupied = position.getOccupied();
+        while(snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            long between = Bitboards.between(king, sniper) & occupied;
+            if(between != 0 && (between & (between - 1)) == 0) {
+                pinned |= between & position.getOccupancy(color);
+            }
+            snipers &= snipers - 1;
+        }
+        return pinned;
+    }
+
+    /**
+     * Adds move from given square to every target square.
+     */
+    private static int addMoves(Position position, int from, long targets, int[] moves, int count) {
+        int piece = position.getPiece(from);
+        while(targets != 0) {
+            int to = Long.numberOfTrailingZeros(targets);
+            moves[count++] = PackedMove.encode(from, to, piece, position.getPiece(to), Bitboards.EMPTY, 0);
+            targets &= targets - 1;
+        }
+        return count;
+    }
+
+    /**
+     * Adds castling move if king and rook haven't moved, squares between them are empty and king doesn't pass through attacked square.
+     * King mustn't be in check when this method is called.
+     */
+    private static int generateCastling(Position position, Color color, Color opponent, int king, int[] moves, int count, boolean kingside) {
+        if(!position.canCastle(color, kingside)) {
+            return count;
+        }
+        int rook = position.castlingRookSquare(color, kingside);
+        int kingTarget = position.castlingKingTarget(color, kingside);
+        long occupied = position.getOccupied();
+        if((Bitboards.between(king, rook) & occupied) != 0) {
+            return count;
+        }
+        long path = Bitboards.between(king, kingTarget) | Bitboards.bit(kingTarget);
+        while(path != 0) {
+            if(isAttacked(position, Long.numberOfTrailingZeros(path), opponent, occupied)) {
+                return count;
+            }
+            path &= path - 1;
+        }
+        moves[count++] = PackedMove.encode(king, kingTarget, position.getPiece(king), Bitboards.EMPTY, Bitboards.EMPTY, PackedMove.CASTLING);
+        return count;
+    }
+
+    /**
+     * Adds en passant captures. Legality is checked by removing both pawns and adding capturing pawn to the occupancy,
+     * and checking whether some piece other than captured pawn attacks the king after that.
+     */
+    private static int generateEnPassant(Position position, Color color, Color opponent, int king, long from, int[] moves, int count) {
+        int captured = position.getEnPassantSquare();
+        if(captured < 0 || position.getPiece(captured) != Bitboards.pieceIndex(opponent, Bitboards.PAWN)) {
+            return count;
+        }
+        int direction = position.pawnDirection(color);
+        int to = captured + (direction == Bitboards.UP ? -8 : 8);
+        long pawns = position.getPieces(color, Bitboards.PAWN) & Bitboards.PAWN_ATTACKS[position.pawnDirection(opponent)][to] & from;
+        while(pawns != 0) {
+            int square = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            if(Bitboards.x(square) != Bitboards.x(captured)) {
+                continue;
+            }
+            long occupied = (position.getOccupied() & ~Bitboards.bit(square) & ~Bitboards.bit(captured)) | Bitboards.bit(to);
+            if((attackers(position, king, opponent, occupied) & ~Bitboards.bit(captured)) == 0) {
+                moves[count++] = PackedMove.encode(square, to, position.getPiece(square), position.getPiece(captured), Bitboards.EMPTY, PackedMove.EN_PASSANT);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns list of legal moves of given figure as coordinates, used by {@link Figure#possibleMoves}.
+     */
+    public static List<Coordinate> possibleMoves(Position position, Figure figure) {
+        int[] moves = new int[PackedMove.MAX_MOVES];
+        int from = Bitboards.square(figure.getxCoordinate(), figure.getyCoordinate());
+        int count = generate(position, figure.getColor(), moves, 0, ALL, Bitboards.bit(from));
+        List<Coordinate> coordinates = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            coordinates.add(PackedMove.toCoordinate(moves[i]));
+        }
+        return coordinates;
+    }
+}
@@ -0,0 +1,251 @@
+package chess.game;
+
+import chess.util.Bitboards;
+import chess.util.Color;
+import chess.util.PackedMove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Perft counts leaf nodes of the move tree to given depth. Counts are compared with known values for reference positions, so every change
+ * of move generation can be checked for correctness and speed. Moves are generated with {@link MoveGenerator}, the same generator
+ * {@link chess.pieces.Figure#possibleMoves} uses, with all promotions, and made with {@link Position#makeMove}.
+ * <p>
+ * Usage: {@code Perft test [depth]}, {@code Perft perft|divide|parallel depth [name or FEN]}.
+ */
+public class Perft {
+
+    /**
+     * Reference positions: name, FEN and node counts for depth 1, 2, ...
+     */
+    public static final Object[][] REFERENCE = new Object[][] {
+            {"start", Fen.START, new long[] {20, 400, 8902, 197281, 4865609, 119060324}},
+            {"kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", new long[] {48, 2039, 97862, 4085603, 193690690}},
+            {"position3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", new long[] {14, 191, 2812, 43238, 674624, 11030083, 178633661}},
+            {"position4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", new long[] {6, 264, 9467, 422333, 15833292}},
+            {"position5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", new long[] {44, 1486, 62379, 2103487, 89941194}},
+            {"position6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", new long[] {46, 2079, 89890, 3894594, 164075551}}
+    };
+
+    /**
+     * Default number of entries of the hash table used by {@link Perft#parallelPerft}.
+     */
+    public static final int HASH_ENTRIES = 1 << 22;
+
+    /**
+     * Position on which moves are made.
+     */
+    private final Position position;
+
+    /**
+     * Move buffers, one for each depth.
+     */
+    private final int[][] moveBuffers;
+
+    /**
+     * Shared hash table or null. Every entry has two longs, key xor data and data, so entry torn by concurrent writes is never accepted.
+     * Data is number of nodes shifted by 8 bits and depth in the lowest 8 bits.
+     */
+    private final long[] hash;
+
+    private Perft(Position position, int depth, long[] hash) {
+        this.position = position;
+        this.moveBuffers = new int[depth + 1][PackedMove.MAX_MOVES];
+        this.hash = hash;
+    }
+
+    /**
+     * Counts leaf nodes of given depth.
+     */
+    public static long perft(Position position, int depth) {
+        if(depth == 0) {
+            return 1;
+        }
+        return new Perft(position, depth, null).count(depth);
+    }
+
+    /**
+     * Counts leaf nodes of given depth for every move of the side to move.
+     * @return node counts keyed by {@link PackedMove}, in order of generation
+     */
+    public static Map<Integer, Long> divide(Position position, int depth) {
+        Perft perft = new Perft(position, depth, null);
+        Map<Integer, Long> result = new LinkedHashMap<>();
+        int[] moves = perft.moveBuffers[depth];
+        int count = MoveGenerator.generate(position, sideToMove(position), moves, true);
+        for(int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            result.put(moves[i], depth == 1 ? 1 : perft.count(depth - 1));
+            position.unmakeMove();
+        }
+        return result;
+    }
+
+    /**
+     * Counts leaf nodes of given depth with moves of the side to move searched in parallel. Every thread creates its own position
+     * from {@link PositionSnapshot} of the given position. Subtrees that were already counted are looked up
+     * in a hash table shared by all threads.
+     * @param threads number of threads
+     * @param hashEntries number of hash table entries, must be power of 2
+     */
+    public static long parallelPerft(Position position, int depth, int threads, int hashEntries) throws InterruptedException {
+        if(depth <= 1) {
+            return perft(position, depth);
+        }
+        long[] hash = new long[2 * hashEntries];
+        int[] moves = new int[PackedMove.MAX_MOVES];
+        int count = MoveGenerator.generate(position, sideToMove(position), moves, true);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Long>> results = new ArrayList<>();
+        PositionSnapshot snapshot = position.toSnapshot();
+        for(int i = 0; i < count; i++) {
+            int move = moves[i];
+            results.add(pool.submit(() -> {
+                Position copy = Position.fromSnapshot(snapshot);
+                copy.makeMove(move);
+                return new Perft(copy, depth - 1, hash).count(depth - 1);
+            }));
+        }
+        pool.shutdown();
+        long nodes = 0;
+        try {
+            for(Future<Long> result : results) {
+                nodes += result.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        return nodes;
+    }
+
+    /**
+     * Recursive counting.
+     */
+    private long count(int depth) {
+        int[] moves = moveBuffers[depth];
+        int count = MoveGenerator.generate(position, sideToMove(position), moves, true);
+        if(depth == 1) {
+            return count;
+        }
+        long key = 0;
+        int index = 0;
+        if(hash != null) {
+            key = position.getKey();
+            index = (int) (key & (hash.length / 2 - 1)) * 2;
+            long data = hash[index + 1];
+            if((hash[index] ^ data) == key && (data & 0xFF) == depth) {
+                return data >>> 8;
+            }
+        }
+        long nodes = 0;
+        for(int i = 0; i < count; i++) {
+            position.makeMove(moves[i]);
+            nodes += count(depth - 1);
+            position.unmakeMove();
+        }
+        if(hash != null) {
+            long data = (nodes << 8) | depth;
+            hash[index] = key ^ data;
+            hash[index + 1] = data;
+        }
+        return nodes;
+    }
+
+    private static Color sideToMove(Position position) {
+        return position.isWhiteToMove ? Color.WHITE : Color.BLACK;
+    }
+
+    /**
+     * Returns FEN of reference position with given name, or given string if there is no such reference position.
+     */
+    private static String fen(String nameOrFen) {
+        for(Object[] reference : REFERENCE) {
+            if(reference[0].equals(nameOrFen)) {
+                return (String) reference[1];
+            }
+        }
+        return nameOrFen;
+    }
+
+    /**
+     * Returns move in coordinate notation, for example "e2e4" or "a7a8q". Player white must be on the down side of the board.
+     */
+    private static String toAlgebraic(int move) {
+        String result = square(PackedMove.from(move)) + square(PackedMove.to(move));
+        if(PackedMove.isPromotion(move)) {
+            result += Character.toLowerCase(Bitboards.SYMBOLS[Bitboards.typeOf(PackedMove.promotion(move))]);
+        }
+        return result;
+    }
+
+    private static String square(int square) {
+        return "" + (char) ('a' + Bitboards.y(square)) + (8 - Bitboards.x(square));
+    }
+
+    private static String nodesPerSecond(long nodes, long nanos) {
+        return String.format("%d nodes in %d ms, %.0f nodes/s", nodes, nanos / 1_000_000, nodes / Math.max(nanos / 1e9, 1e-9));
+    }
+
+    /**
+     * Runs all reference positions to given depth (5 by default), or perft, divide or parallel perft of one position (start position by default).
+     */
+    public static void main(String[] args) throws InterruptedException {
+        if(args.length == 0) {
+            System.out.println("Usage: Perft test [depth] | Perft perft|divide|parallel depth [name or FEN]");
+            return;
+        }
+        String mode = args[0];
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        if(mode.equals("test")) {
+            boolean ok = true;
+            for(Object[] reference : REFERENCE) {
+                long[] expected = (long[]) reference[2];
+                Position position = Fen.parse((String) reference[1]);
+                for(int d = 1; d <= Math.min(depth, expected.length); d++) {
+                    long start = System.nanoTime();
+                    long nodes = perft(position, d);
+                    long time = System.nanoTime() - start;
+                    boolean correct = nodes == expected[d - 1];
+                    ok &= correct;
+                    System.out.println(reference[0] + " depth " + d + ": " + nodesPerSecond(nodes, time) + (correct ? " OK" : " FAILED, expected " + expected[d - 1]));
+                }
+            }
+            System.out.println(ok ? "All counts are correct." : "Some counts are wrong.");
+            if(!ok) {
+                System.exit(1);
+            }
+            return;
+        }
+
+        String fen = args.length > 2 ? fen(String.join(" ", Arrays.copyOfRange(args, 2, args.length))) : Fen.START;
+        Position position = Fen.parse(fen);
+        long start = System.nanoTime();
+        long nodes;
+        switch(mode) {
+            case "perft":
+                nodes = perft(position, depth);
+                break;
+            case "divide":
+                nodes = 0;
+                for(Map.Entry<Integer, Long> entry : divide(position, depth).entrySet()) {
+                    System.out.println(toAlgebraic(entry.getKey()) + ": " + entry.getValue());
+                    nodes += entry.getValue();
+                }
+                break;
+            case "parallel":
+                nodes = parallelPerft(position, depth, Runtime.getRuntime().availableProcessors(), HASH_ENTRIES);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mode " + mode);
+        }
+        System.out.println(nodesPerSecond(nodes, System.nanoTime() - start));
+    }
+}
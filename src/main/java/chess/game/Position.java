@@ -1,20 +1,31 @@
 package chess.game;
 
+import chess.pieces.Bishop;
 import chess.pieces.Figure;
 import chess.pieces.King;
+import chess.pieces.Knight;
+import chess.pieces.Pawn;
 import chess.pieces.Pawn.EnPassant;
+import chess.pieces.Queen;
 import chess.pieces.Rook;
+import chess.util.Bitboards;
+import chess.util.ChessUtil;
 import chess.util.Color;
 import chess.util.Coordinate;
+import chess.util.Move;
+import chess.util.PackedMove;
+import chess.util.Zobrist;
 
-import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
  * Class represents current position in the game. Position is defined with 8x8 array of {@link Figure}.
- * Position is used for manipulating figures and setting up new positions after each move. Also moves can be undone which is used in {@link chess.searchalgorithms.SearchAlgorithm}s,
- * and this class supports method for that.
+ * Alongside the array position keeps bitboards ({@link Bitboards}) of all pieces which are used by search algorithms and evaluators, while array of figures
+ * is used by gui. Both representations are updated by every method that changes position.
+ * Position is used for manipulating figures and setting up new positions after each move. {@link chess.searchalgorithms.SearchAlgorithm}s make and undo
+ * {@link PackedMove}s with {@link Position#makeMove} and {@link Position#unmakeMove}, which save everything needed for undoing the move on a preallocated undo stack.
  * @author lukag
  * @version 1.1
  */
@@ -41,6 +52,121 @@ public class Position {
      */
     public EnPassant enPassant = new EnPassant();
 
+    /**
+     * Bitboard for every piece, indexed by {@link Bitboards#pieceIndex}.
+     */
+    private long[] pieces = new long[12];
+
+    /**
+     * Occupied squares of each color, indexed by {@link Color#getValue()}.
+     */
+    private long[] occupancy = new long[2];
+
+    /**
+     * All occupied squares.
+     */
+    private long occupied;
+
+    /**
+     * Piece index on every square or {@link Bitboards#EMPTY}.
+     */
+    private int[] squares = new int[64];
+
+    /**
+     * Squares of all pieces of each color, indexed by {@link Color#getValue()}. Only first {@link Position#pieceCount} elements are used.
+     * Lists are not limited to 16 pieces because {@link Position#setFigure} briefly keeps moved figure on both squares.
+     */
+    private int[][] pieceList = new int[2][64];
+
+    /**
+     * Number of pieces of each color.
+     */
+    private int[] pieceCount = new int[2];
+
+    /**
+     * Index of the piece on every square in {@link Position#pieceList}.
+     */
+    private int[] pieceListIndex = new int[64];
+
+    /**
+     * Square of the king of each color or -1 if there is no king.
+     */
+    private int[] kingSquare = new int[2];
+
+    /**
+     * Xor of {@link Zobrist#PIECES} numbers of all pieces on their squares, updated whenever piece is put on or removed from a square.
+     * Side to move, castling rights and en passant are added in {@link Position#getKey()}, because {@link Position#isWhiteToMove} and {@link Position#enPassant}
+     * are also changed directly by {@link Figure#move}.
+     */
+    private long pieceKey;
+
+    /**
+     * Castling rights, one bit for each color and side ({@link Position#castlingBit}).
+     */
+    private int castlingRights;
+
+    /**
+     * Castling rights that remain after piece on given square is moved or captured.
+     */
+    private int[] castlingMask = new int[64];
+
+    /**
+     * Has the king of each color castled.
+     */
+    private boolean[] castled = new boolean[2];
+
+    /**
+     * Maximum number of moves that can be made with {@link Position#makeMove} without undoing them.
+     */
+    private static final int UNDO_STACK_SIZE = 256;
+
+    /**
+     * Number of moves on the undo stack.
+     */
+    private int ply;
+
+    /**
+     * Moves made with {@link Position#makeMove}.
+     */
+    private int[] undoMoves = new int[UNDO_STACK_SIZE];
+
+    /**
+     * Moved figures, needed when pawn is replaced by promoted figure.
+     */
+    private Figure[] undoMoved = new Figure[UNDO_STACK_SIZE];
+
+    /**
+     * Captured figures or null.
+     */
+    private Figure[] undoCaptured = new Figure[UNDO_STACK_SIZE];
+
+    /**
+     * Castling rights before the move.
+     */
+    private int[] undoCastlingRights = new int[UNDO_STACK_SIZE];
+
+    /**
+     * En passant square before the move ({@link Position#getEnPassantSquare()}).
+     */
+    private int[] undoEnPassant = new int[UNDO_STACK_SIZE];
+
+    /**
+     * Figure for every piece index ({@link Bitboards#pieceIndex}), copied by {@link Position#createFigure}.
+     */
+    private static final Figure[] PROTOTYPES = new Figure[12];
+
+    static {
+        for(Color color : Color.values()) {
+            Coordinate coordinate = new Coordinate(0, 0);
+            PROTOTYPES[Bitboards.pieceIndex(color, Bitboards.PAWN)] = new Pawn(color, coordinate);
+            PROTOTYPES[Bitboards.pieceIndex(color, Bitboards.KNIGHT)] = new Knight(color, coordinate);
+            PROTOTYPES[Bitboards.pieceIndex(color, Bitboards.BISHOP)] = new Bishop(color, coordinate);
+            PROTOTYPES[Bitboards.pieceIndex(color, Bitboards.ROOK)] = new Rook(color, coordinate);
+            PROTOTYPES[Bitboards.pieceIndex(color, Bitboards.QUEEN)] = new Queen(color, coordinate);
+            PROTOTYPES[Bitboards.pieceIndex(color, Bitboards.KING)] = new King(color, coordinate);
+        }
+    }
+
     /**
      * Basic constructor with already initialized array of figures.
      * @param playerWhite {@link Position#playerWhite}
@@ -50,6 +176,34 @@ public class Position {
     public Position(boolean playerWhite, Figure[][] position, boolean isWhiteToMove){
         this(playerWhite, isWhiteToMove);
         this.position = position;
+        initBitboards();
+    }
+
+    /**
+     * Copy constructor. Figures are copied with {@link Position#copy()} and bitboards, piece lists, castling rights, en passant and key
+     * are copied from given position instead of being calculated again. Undo stack of the copy is empty.
+     * Used by {@link chess.searchalgorithms.SearchAlgorithm}s, which search on their own copy of the position.
+     */
+    public Position(Position position) {
+        this(position.playerWhite, position.isWhiteToMove);
+        this.position = position.copy();
+        System.arraycopy(position.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(position.occupancy, 0, occupancy, 0, occupancy.length);
+        System.arraycopy(position.squares, 0, squares, 0, squares.length);
+        System.arraycopy(position.pieceCount, 0, pieceCount, 0, pieceCount.length);
+        System.arraycopy(position.pieceListIndex, 0, pieceListIndex, 0, pieceListIndex.length);
+        System.arraycopy(position.kingSquare, 0, kingSquare, 0, kingSquare.length);
+        System.arraycopy(position.castlingMask, 0, castlingMask, 0, castlingMask.length);
+        System.arraycopy(position.castled, 0, castled, 0, castled.length);
+        for(int i = 0; i < pieceList.length; i++) {
+            System.arraycopy(position.pieceList[i], 0, pieceList[i], 0, pieceList[i].length);
+        }
+        occupied = position.occupied;
+        pieceKey = position.pieceKey;
+        castlingRights = position.castlingRights;
+        enPassant.enPassantAllowed = position.enPassant.enPassantAllowed;
+        enPassant.x = position.enPassant.x;
+        enPassant.y = position.enPassant.y;
     }
 
     /**
@@ -76,6 +230,499 @@ public class Position {
         return position;
     }
 
+    /**
+     * Fills bitboards from {@link Position#position}.
+     */
+    private void initBitboards() {
+        Arrays.fill(pieces, 0);
+        Arrays.fill(occupancy, 0);
+        Arrays.fill(squares, Bitboards.EMPTY);
+        Arrays.fill(pieceCount, 0);
+        Arrays.fill(kingSquare, -1);
+        occupied = 0;
+        pieceKey = 0;
+        for(int i = 0; i < 8; i++) {
+            for(int j = 0; j < 8; j++) {
+                if(position[i][j] != null) {
+                    putPiece(Bitboards.square(i, j), pieceIndex(position[i][j]));
+                }
+            }
+        }
+        Arrays.fill(castlingMask, -1);
+        for(Color color : Color.values()) {
+            castlingMask[castlingKingSquare(color)] &= ~(castlingBit(color, true) | castlingBit(color, false));
+            castlingMask[castlingRookSquare(color, true)] &= ~castlingBit(color, true);
+            castlingMask[castlingRookSquare(color, false)] &= ~castlingBit(color, false);
+        }
+        initCastling();
+    }
+
+    /**
+     * Sets castling rights and castled flags from {@link King} and {@link Rook} figures.
+     */
+    private void initCastling() {
+        castlingRights = 0;
+        for(Color color : Color.values()) {
+            int king = castlingKingSquare(color);
+            Figure k = position[Bitboards.x(king)][Bitboards.y(king)];
+            for(boolean kingside : new boolean[] {true, false}) {
+                int rook = castlingRookSquare(color, kingside);
+                Figure r = position[Bitboards.x(rook)][Bitboards.y(rook)];
+                if(k instanceof King && k.getColor() == color && ((King) k).isMoved() == 0 &&
+                        r instanceof Rook && r.getColor() == color && ((Rook) r).isMoved() == 0) {
+                    castlingRights |= castlingBit(color, kingside);
+                }
+            }
+            int square = kingSquare[color.getValue()];
+            castled[color.getValue()] = square >= 0 && ((King) position[Bitboards.x(square)][Bitboards.y(square)]).isCastled();
+        }
+    }
+
+    /**
+     * Returns bit of {@link Position#castlingRights} for given color and side.
+     */
+    private static int castlingBit(Color color, boolean kingside) {
+        return 1 << (2 * color.getValue() + (kingside ? 0 : 1));
+    }
+
+    /**
+     * Returns piece index of given figure.
+     */
+    private static int pieceIndex(Figure figure) {
+        return Bitboards.pieceIndex(figure.getColor(), Bitboards.typeOf(figure.getSymbol()));
+    }
+
+    /**
+     * Puts piece on empty square of bitboards and piece lists.
+     */
+    private void putPiece(int square, int piece) {
+        long bit = Bitboards.bit(square);
+        int color = piece < 6 ? 0 : 1;
+        pieces[piece] |= bit;
+        occupancy[color] |= bit;
+        occupied |= bit;
+        squares[square] = piece;
+        pieceKey ^= Zobrist.PIECES[piece][square];
+        pieceListIndex[square] = pieceCount[color];
+        pieceList[color][pieceCount[color]++] = square;
+        if(Bitboards.typeOf(piece) == Bitboards.KING) {
+            kingSquare[color] = square;
+        }
+    }
+
+    /**
+     * Removes piece from square of bitboards and piece lists. Square must not be empty.
+     * Last piece in the list takes place of the removed one.
+     */
+    private void removePiece(int square) {
+        long bit = Bitboards.bit(square);
+        int piece = squares[square];
+        int color = piece < 6 ? 0 : 1;
+        pieces[piece] &= ~bit;
+        occupancy[color] &= ~bit;
+        occupied &= ~bit;
+        squares[square] = Bitboards.EMPTY;
+        pieceKey ^= Zobrist.PIECES[piece][square];
+        int last = pieceList[color][--pieceCount[color]];
+        pieceList[color][pieceListIndex[square]] = last;
+        pieceListIndex[last] = pieceListIndex[square];
+        if(kingSquare[color] == square) {
+            kingSquare[color] = pieces[piece] == 0 ? -1 : Long.numberOfTrailingZeros(pieces[piece]);
+        }
+    }
+
+    /**
+     * Sets figure (or null) on (x, y) square of {@link Position#position} and updates bitboards.
+     * Castling rights connected with the square are lost.
+     */
+    private void place(int x, int y, Figure figure) {
+        int square = Bitboards.square(x, y);
+        if(squares[square] != Bitboards.EMPTY) {
+            removePiece(square);
+        }
+        if(figure != null) {
+            putPiece(square, pieceIndex(figure));
+        }
+        position[x][y] = figure;
+        castlingRights &= castlingMask[square];
+    }
+
+    /**
+     * Sets figure (or null) on given square and moves figure's coordinate to that square.
+     */
+    private void place(int square, Figure figure) {
+        int x = Bitboards.x(square);
+        int y = Bitboards.y(square);
+        place(x, y, figure);
+        if(figure != null) {
+            figure.setxCoordinate(x);
+            figure.setyCoordinate(y);
+        }
+    }
+
+    /**
+     * Makes given move. Captures, promotions, en passant, castling, castling rights and side to move are all handled here,
+     * and state needed for {@link Position#unmakeMove()} is saved on the undo stack. Move must be legal.
+     * Unlike {@link Figure#move} this method doesn't record moves and doesn't change attributes of {@link King} and {@link Rook} figures.
+     * @param move {@link PackedMove} generated for this position
+     */
+    public void makeMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int flags = PackedMove.flags(move);
+        Figure moved = position[Bitboards.x(from)][Bitboards.y(from)];
+        Color color = moved.getColor();
+
+        undoMoves[ply] = move;
+        undoMoved[ply] = moved;
+        undoCastlingRights[ply] = castlingRights;
+        undoEnPassant[ply] = getEnPassantSquare();
+        if((flags & PackedMove.EN_PASSANT) != 0) {
+            int captured = getEnPassantSquare();
+            undoCaptured[ply] = position[Bitboards.x(captured)][Bitboards.y(captured)];
+            place(captured, null);
+        } else {
+            undoCaptured[ply] = position[Bitboards.x(to)][Bitboards.y(to)];
+        }
+        ply++;
+
+        if(PackedMove.isPromotion(move)) {
+            place(to, createFigure(PackedMove.promotion(move), to));
+        } else {
+            place(to, moved);
+        }
+        place(from, null);
+
+        if((flags & PackedMove.CASTLING) != 0) {
+            int rookFrom = castlingRookSquare(color, castlingKingTarget(color, true) == to);
+            place((from + to) / 2, position[Bitboards.x(rookFrom)][Bitboards.y(rookFrom)]);
+            place(rookFrom, null);
+            castled[color.getValue()] = true;
+        }
+
+        enPassant.enPassantAllowed = (flags & PackedMove.DOUBLE_PUSH) != 0;
+        if(enPassant.enPassantAllowed) {
+            enPassant.x = Bitboards.x(to);
+            enPassant.y = Bitboards.y(to);
+        }
+        isWhiteToMove = !isWhiteToMove;
+        assert getKey() == computeKey() : "Zobrist key differs from recomputed key after " + PackedMove.toString(move);
+    }
+
+    /**
+     * Undoes the latest move made with {@link Position#makeMove}.
+     */
+    public void unmakeMove() {
+        ply--;
+        int move = undoMoves[ply];
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int flags = PackedMove.flags(move);
+        Figure moved = undoMoved[ply];
+        Color color = moved.getColor();
+
+        if((flags & PackedMove.CASTLING) != 0) {
+            int rookFrom = castlingRookSquare(color, castlingKingTarget(color, true) == to);
+            int rookTo = (from + to) / 2;
+            place(rookFrom, position[Bitboards.x(rookTo)][Bitboards.y(rookTo)]);
+            place(rookTo, null);
+            castled[color.getValue()] = false;
+        }
+
+        place(from, moved);
+        place(to, null);
+        Figure captured = undoCaptured[ply];
+        if(captured != null) {
+            place((flags & PackedMove.EN_PASSANT) != 0 ? undoEnPassant[ply] : to, captured);
+        }
+        undoMoved[ply] = null;
+        undoCaptured[ply] = null;
+
+        castlingRights = undoCastlingRights[ply];
+        enPassant.enPassantAllowed = undoEnPassant[ply] >= 0;
+        if(enPassant.enPassantAllowed) {
+            enPassant.x = Bitboards.x(undoEnPassant[ply]);
+            enPassant.y = Bitboards.y(undoEnPassant[ply]);
+        }
+        isWhiteToMove = !isWhiteToMove;
+        assert getKey() == computeKey() : "Zobrist key differs from recomputed key after undoing " + PackedMove.toString(move);
+    }
+
+    /**
+     * Returns the latest move made with {@link Position#makeMove} that wasn't undone yet, or {@link PackedMove#NONE} if there is no such move
+     * or the latest move was null move.
+     */
+    public int getLastMove() {
+        return ply > 0 ? undoMoves[ply - 1] : PackedMove.NONE;
+    }
+
+    /**
+     * Passes the turn to the opponent without moving any piece (null move), used by null move pruning. En passant is no longer allowed
+     * after it. Null move is undone with {@link Position#unmakeNullMove()} and must not be made when side to move is in check.
+     */
+    public void makeNullMove() {
+        undoMoves[ply] = PackedMove.NONE;
+        undoCastlingRights[ply] = castlingRights;
+        undoEnPassant[ply] = getEnPassantSquare();
+        ply++;
+        enPassant.enPassantAllowed = false;
+        isWhiteToMove = !isWhiteToMove;
+        assert getKey() == computeKey() : "Zobrist key differs from recomputed key after null move";
+    }
+
+    /**
+     * Undoes the latest null move made with {@link Position#makeNullMove()}.
+     */
+    public void unmakeNullMove() {
+        ply--;
+        enPassant.enPassantAllowed = undoEnPassant[ply] >= 0;
+        if(enPassant.enPassantAllowed) {
+            enPassant.x = Bitboards.x(undoEnPassant[ply]);
+            enPassant.y = Bitboards.y(undoEnPassant[ply]);
+        }
+        isWhiteToMove = !isWhiteToMove;
+        assert getKey() == computeKey() : "Zobrist key differs from recomputed key after undoing null move";
+    }
+
+    /**
+     * Returns Zobrist key of this position ({@link Zobrist}). Key covers pieces on their squares, side to move, castling rights and file of the pawn
+     * that can be captured en passant. En passant file is included only if side to move has a pawn next to that pawn, so positions that differ only
+     * in en passant that can't be played have the same key.
+     */
+    public long getKey() {
+        return pieceKey ^ stateKey();
+    }
+
+    /**
+     * Returns part of Zobrist key for side to move, castling rights and en passant.
+     */
+    private long stateKey() {
+        long key = Zobrist.CASTLING[castlingRights];
+        if(!isWhiteToMove) {
+            key ^= Zobrist.BLACK_TO_MOVE;
+        }
+        int square = getEnPassantSquare();
+        if(square >= 0) {
+            int y = Bitboards.y(square);
+            long pawns = getPieces(isWhiteToMove ? Color.WHITE : Color.BLACK, Bitboards.PAWN);
+            if((y > 0 && (pawns & Bitboards.bit(square - 1)) != 0) || (y < 7 && (pawns & Bitboards.bit(square + 1)) != 0)) {
+                key ^= Zobrist.EN_PASSANT[y];
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Calculates Zobrist key from scratch. Used for checking incrementally updated key when assertions are enabled (-ea).
+     */
+    public long computeKey() {
+        long key = 0;
+        for(int square = 0; square < 64; square++) {
+            if(squares[square] != Bitboards.EMPTY) {
+                key ^= Zobrist.PIECES[squares[square]][square];
+            }
+        }
+        return key ^ stateKey();
+    }
+
+    /**
+     * Returns immutable snapshot of this position with halfmove clock 0 and fullmove number {@link ChessUtil#moveNumber}.
+     */
+    public PositionSnapshot toSnapshot() {
+        return toSnapshot(0, ChessUtil.moveNumber);
+    }
+
+    /**
+     * Returns immutable snapshot of this position with given clocks, which position itself doesn't keep.
+     */
+    public PositionSnapshot toSnapshot(int halfmoveClock, int fullmoveNumber) {
+        return PositionSnapshot.pack(squares, isWhiteToMove, playerWhite, castlingRights, getEnPassantSquare(), castled, halfmoveClock, fullmoveNumber,
+                getKey());
+    }
+
+    /**
+     * Creates position from given snapshot. Kings and rooks that lost castling rights are marked as moved, so figures agree with the castling
+     * rights of the snapshot.
+     */
+    public static Position fromSnapshot(PositionSnapshot snapshot) {
+        boolean playerWhite = snapshot.getPlayerWhite();
+        Position result = new Position(playerWhite, snapshot.isWhiteToMove());
+        int rights = snapshot.getCastlingRights();
+        Figure[][] figures = new Figure[8][8];
+        for(int square = 0; square < 64; square++) {
+            int piece = snapshot.getPiece(square);
+            if(piece == Bitboards.EMPTY) {
+                continue;
+            }
+            Figure figure = createFigure(piece, square);
+            Color color = figure.getColor();
+            if(figure instanceof King) {
+                ((King) figure).setCastled(snapshot.isCastled(color.getValue()));
+                if(square != result.castlingKingSquare(color) || (rights & (castlingBit(color, true) | castlingBit(color, false))) == 0) {
+                    ((King) figure).setMoved(1);
+                }
+            } else if(figure instanceof Rook) {
+                boolean kingside = square == result.castlingRookSquare(color, true);
+                if((!kingside && square != result.castlingRookSquare(color, false)) || (rights & castlingBit(color, kingside)) == 0) {
+                    ((Rook) figure).setMoved(1);
+                }
+            }
+            figures[Bitboards.x(square)][Bitboards.y(square)] = figure;
+        }
+        result.position = figures;
+        result.initBitboards();
+        int enPassant = snapshot.getEnPassantSquare();
+        if(enPassant >= 0) {
+            result.enPassant.enPassantAllowed = true;
+            result.enPassant.x = Bitboards.x(enPassant);
+            result.enPassant.y = Bitboards.y(enPassant);
+        }
+        assert result.getKey() == snapshot.getKey();
+        return result;
+    }
+
+    /**
+     * Creates figure for given piece index on given square, used for promotions and {@link Position#fromSnapshot}.
+     * Figure is copied from {@link Position#PROTOTYPES}, so no icon is created.
+     */
+    private static Figure createFigure(int piece, int square) {
+        Figure figure = PROTOTYPES[piece].copy();
+        figure.setxCoordinate(Bitboards.x(square));
+        figure.setyCoordinate(Bitboards.y(square));
+        return figure;
+    }
+
+    /**
+     * Returns bitboard of pieces with given color and type.
+     * @param type one of piece types defined in {@link Bitboards}
+     */
+    public long getPieces(Color color, int type) {
+        return pieces[Bitboards.pieceIndex(color, type)];
+    }
+
+    /**
+     * Returns bitboard of all pieces of given color.
+     */
+    public long getOccupancy(Color color) {
+        return occupancy[color.getValue()];
+    }
+
+    /**
+     * Returns bitboard of all pieces.
+     */
+    public long getOccupied() {
+        return occupied;
+    }
+
+    /**
+     * Returns piece index on given square or {@link Bitboards#EMPTY}.
+     */
+    public int getPiece(int square) {
+        return squares[square];
+    }
+
+    /**
+     * Returns square of the king of given color or -1 if there is no king.
+     */
+    public int getKingSquare(Color color) {
+        return kingSquare[color.getValue()];
+    }
+
+    /**
+     * Returns number of pieces of given color.
+     */
+    public int getPieceCount(Color color) {
+        return pieceCount[color.getValue()];
+    }
+
+    /**
+     * Returns square of the i-th piece of given color, where i is from 0 to {@link Position#getPieceCount} - 1.
+     * Order of pieces changes when pieces are removed.
+     */
+    public int getPieceSquare(Color color, int i) {
+        return pieceList[color.getValue()][i];
+    }
+
+    /**
+     * Returns direction in which pawns of given color are moving, {@link Bitboards#UP} for player on the down side of the board.
+     */
+    public int pawnDirection(Color color) {
+        return (color == Color.WHITE) == playerWhite ? Bitboards.UP : Bitboards.DOWN;
+    }
+
+    /**
+     * Returns square of the pawn that can be captured en passant, or -1 if en passant is not allowed.
+     */
+    public int getEnPassantSquare() {
+        return enPassant.enPassantAllowed ? Bitboards.square(enPassant.x, enPassant.y) : -1;
+    }
+
+    /**
+     * Checks whether king and rook of given color are on their starting squares and haven't moved yet.
+     * @param kingside kingside or queenside rook
+     */
+    public boolean canCastle(Color color, boolean kingside) {
+        return (castlingRights & castlingBit(color, kingside)) != 0;
+    }
+
+    /**
+     * Checks whether the king of given color has castled.
+     */
+    public boolean isCastled(Color color) {
+        return castled[color.getValue()];
+    }
+
+    /**
+     * Sets castled flag of given color, used by {@link King#move} when king castles.
+     */
+    public void setCastled(Color color, boolean isCastled) {
+        castled[color.getValue()] = isCastled;
+    }
+
+    /**
+     * Returns starting square of the king of given color.
+     */
+    public int castlingKingSquare(Color color) {
+        return Bitboards.square(pawnDirection(color) == Bitboards.UP ? 7 : 0, playerWhite ? 4 : 3);
+    }
+
+    /**
+     * Returns starting square of the kingside or queenside rook of given color.
+     */
+    public int castlingRookSquare(Color color, boolean kingside) {
+        return Bitboards.square(pawnDirection(color) == Bitboards.UP ? 7 : 0, kingside == playerWhite ? 7 : 0);
+    }
+
+    /**
+     * Returns square king of given color moves to when castling.
+     */
+    public int castlingKingTarget(Color color, boolean kingside) {
+        int king = castlingKingSquare(color);
+        return castlingRookSquare(color, kingside) > king ? king + 2 : king - 2;
+    }
+
+    /**
+     * Returns all squares attacked by piece on given square, including squares occupied by pieces of the same color.
+     * Square must not be empty.
+     */
+    public long attacksFrom(int square) {
+        int piece = squares[square];
+        switch(Bitboards.typeOf(piece)) {
+            case Bitboards.PAWN:
+                return Bitboards.PAWN_ATTACKS[pawnDirection(Bitboards.colorOf(piece))][square];
+            case Bitboards.KNIGHT:
+                return Bitboards.KNIGHT_ATTACKS[square];
+            case Bitboards.BISHOP:
+                return Bitboards.bishopAttacks(square, occupied);
+            case Bitboards.ROOK:
+                return Bitboards.rookAttacks(square, occupied);
+            case Bitboards.QUEEN:
+                return Bitboards.queenAttacks(square, occupied);
+            default:
+                return Bitboards.KING_ATTACKS[square];
+        }
+    }
+
     /**
      * Method sets position to position before latest move. After setting position back method calls {@link Position#setFigureAttributesBack} because {@link King}
      * and {@link Rook} have some attributes that could have been changed with latest move.
@@ -84,12 +731,13 @@ public class Position {
      * @param previousCoordinate previous coordinate of given figure
      */
     public void setPositionBack(Figure[][] position, Figure f, Coordinate previousCoordinate) {
-        this.position[f.getxCoordinate()][f.getyCoordinate()] = position[f.getxCoordinate()][f.getyCoordinate()];
-        this.position[previousCoordinate.getX()][previousCoordinate.getY()] = f;
+        place(f.getxCoordinate(), f.getyCoordinate(), position[f.getxCoordinate()][f.getyCoordinate()]);
+        place(previousCoordinate.getX(), previousCoordinate.getY(), f);
         f.setxCoordinate(previousCoordinate.getX());
         f.setyCoordinate(previousCoordinate.getY());
         isWhiteToMove = !isWhiteToMove;
         setFigureAttributesBack(f);
+        initCastling();
     }
 
     /**
@@ -104,20 +752,20 @@ public class Position {
                 boolean down = (f.getColor() == (playerWhite ? Color.WHITE : Color.BLACK));
                 if(((King) f).movesAfterCastling == 0 && ((King) f).moveDescription == King.KINGSIDE) {
                     Rook rook = (Rook) getFigure(down ? 7 : 0, playerWhite ? 5 : 2);
-                    position[down ? 7 : 0][playerWhite ? 5 : 2] = null;
+                    place(down ? 7 : 0, playerWhite ? 5 : 2, null);
                     rook.setxCoordinate(down ? 7 : 0);
                     rook.setyCoordinate(playerWhite ? 7 : 0);
-                    position[rook.getxCoordinate()][rook.getyCoordinate()] = rook;
+                    place(rook.getxCoordinate(), rook.getyCoordinate(), rook);
                     rook.setMoved(rook.isMoved() - 1);
                     ((King) f).setCastled(false);
                     ((King) f).moveDescription = King.NORMAL;
                     ((King) f).movesAfterCastling = ((King) f).movesAfterCastling - 1;
                 } else if(((King) f).moveDescription == King.QUEENSIDE && ((King) f).movesAfterCastling == 0) {
                     Rook rook = (Rook) getFigure(down ? 7 : 0, playerWhite ? 3 : 4);
-                    position[down ? 7 : 0][playerWhite ? 3 : 4] = null;
+                    place(down ? 7 : 0, playerWhite ? 3 : 4, null);
                     rook.setxCoordinate(down ? 7 : 0);
                     rook.setyCoordinate(playerWhite ? 0 : 7);
-                    position[rook.getxCoordinate()][rook.getyCoordinate()] = rook;
+                    place(rook.getxCoordinate(), rook.getyCoordinate(), rook);
                     rook.setMoved(rook.isMoved() - 1);
                     ((King) f).setCastled(false);
                     ((King) f).moveDescription = King.NORMAL;
@@ -159,15 +807,16 @@ public class Position {
      * If there isn't any {@link Figure} that matches arguments method return null.
      */
     public Coordinate getFigureCoordinate(Color color, char symbol) {
-        for(int i = 0; i < 8; i++) {
-            for(int j = 0; j < 8; j++) {
-                if(position[i][j] != null && position[i][j].getColor() == color &&
-                        position[i][j].getSymbol() == symbol) {
-                    return new Coordinate(i, j);
-                }
-            }
+        if(symbol == 'K') {
+            int square = kingSquare[color.getValue()];
+            return square < 0 ? null : new Coordinate(Bitboards.x(square), Bitboards.y(square));
+        }
+        long bitboard = getPieces(color, Bitboards.typeOf(symbol));
+        if(bitboard == 0) {
+            return null;
         }
-        return null;
+        int square = Long.numberOfTrailingZeros(bitboard);
+        return new Coordinate(Bitboards.x(square), Bitboards.y(square));
     }
 
     /**
@@ -183,8 +832,8 @@ public class Position {
             Figure figure = getFigure(oldX, oldY);
             figure.setxCoordinate(newX);
             figure.setyCoordinate(newY);
-            position[newX][newY] = figure;
-            position[oldX][oldY] = null;
+            place(newX, newY, figure);
+            place(oldX, oldY, null);
         } catch (NullPointerException e) {
             e.printStackTrace();
         }
@@ -201,10 +850,11 @@ public class Position {
      * @param figure figure that was previously on (oldX, oldY) coordinate.
      */
     public void setFigureBack(int oldX, int oldY, int newX, int newY, Figure figure) {
-        position[newX][newY] = position[oldX][oldY];
+        place(newX, newY, position[oldX][oldY]);
         position[newX][newY].setxCoordinate(newX);
         position[newX][newY].setyCoordinate(newY);
-        position[oldX][oldY] = figure;
+        place(oldX, oldY, figure);
+        initCastling();
     }
 
     /**
@@ -214,7 +864,7 @@ public class Position {
         if(figure == null) {
             throw new IllegalArgumentException("Figure cannot be null");
         }
-        position[figure.getxCoordinate()][figure.getyCoordinate()] = figure;
+        place(figure.getxCoordinate(), figure.getyCoordinate(), figure);
     }
 
     /**
@@ -222,7 +872,7 @@ public class Position {
      * value of that square.
      */
     public void setNullValue(int x, int y) {
-        position[x][y] = null;
+        place(x, y, null);
     }
 
     /**
@@ -230,29 +880,60 @@ public class Position {
      * @param color defines player who is attacking given square.
      */
     public int numberOfAttackers(int x, int y, Color color) {
-        int counter = 0;
-        List<Figure> figures = getPiecesOfColor(color);
-        for(Figure piece : figures) {
-            for(Coordinate c : piece.attacking(this)) {
-                if(c.getX() == x && c.getY() == y) {
-                    counter++;
-                }
-            }
-        }
-        return counter;
+        return Long.bitCount(MoveGenerator.attackers(this, Bitboards.square(x, y), color, occupied));
     }
 
+    /**
+     * Returns all pieces of given color that attack given square, with slider attacks calculated for given occupancy.
+     * Pieces that are not in the occupancy are included too, so the result is usually masked with it.
+     * @param square square index ({@link Bitboards#square})
+     * @param occupied occupancy used for slider attacks
+     */
+    public long attackers(int square, Color color, long occupied) {
+        return MoveGenerator.attackers(this, square, color, occupied);
+    }
+
+    /**
+     * Checks whether given square is attacked. Unlike {@link #numberOfAttackers} it stops at the first attacker found.
+     * @param square square index ({@link Bitboards#square})
+     * @param color defines player who is attacking given square.
+     */
+    public boolean isSquareAttacked(int square, Color color) {
+        return MoveGenerator.isAttacked(this, square, color, occupied);
+    }
+
+    /**
+     * Checks whether the king of given color is attacked.
+     */
+    public boolean isInCheck(Color color) {
+        int king = kingSquare[color.getValue()];
+        return king >= 0 && isSquareAttacked(king, color == Color.WHITE ? Color.BLACK : Color.WHITE);
+    }
 
     /**
      * Method returns number of possible moves for a player defined with given color.
      */
     public int allPossibleMoves(Color color) {
-        int counter = 0;
-        List<Figure> figures = getPiecesOfColor(color);
-        for(Figure piece : figures) {
-            counter += piece.possibleMoves(this).size();
-        }
-        return counter;
+        return MoveGenerator.generate(this, color, new int[PackedMove.MAX_MOVES]);
+    }
+
+
+    /**
+     * Generates all possible moves for a player defined with given color into given buffer as {@link PackedMove}s.
+     * Only legal moves are generated ({@link MoveGenerator}).
+     * @param moves buffer with at least {@link PackedMove#MAX_MOVES} elements
+     * @return number of generated moves
+     */
+    public int generateMoves(Color color, int[] moves) {
+        return MoveGenerator.generate(this, color, moves);
+    }
+
+    /**
+     * Converts {@link PackedMove} to {@link Move} with figure of this position.
+     */
+    public Move toMove(int move) {
+        int from = PackedMove.from(move);
+        return new Move(position[Bitboards.x(from)][Bitboards.y(from)], PackedMove.toCoordinate(move));
     }
 
     /**
@@ -271,34 +952,17 @@ public class Position {
 
     /**
      * Returns copy of current position. Figures in copied position doesn't reference to the objects of {@link Position#position}.
-     * @return
+     * Figures are copied with {@link Figure#copy()}, so no icons are created.
      */
     public Figure[][] copy() {
         Figure[][] copy = new Figure[8][8];
-        try {
-            for(int i = 0; i < 8; i++) {
-                for(int j = 0; j < 8; j++) {
-                    Figure f = getPosition()[i][j];
-                    if(f == null){
-                        continue;
-                    }
-
-                    copy[i][j] = f.getClass().getDeclaredConstructor(new Class[] {Color.class, Coordinate.class}).newInstance(f.getColor(), new Coordinate(i, j));
-                    if(f instanceof Rook) {
-                        ((Rook) f).setMoved(((Rook) f).isMoved());
-                    }
-                    else if(f instanceof King) {
-                        ((King) copy[i][j]).setMoved(((King) f).isMoved());
-                        ((King) copy[i][j]).setCastled(((King) f).isCastled());
-                        ((King) copy[i][j]).moveDescription = ((King) f).moveDescription;
-                        ((King) copy[i][j]).movesAfterCastling = ((King) f).movesAfterCastling;
-                    }
+        for(int i = 0; i < 8; i++) {
+            for(int j = 0; j < 8; j++) {
+                if(position[i][j] != null) {
+                    copy[i][j] = position[i][j].copy();
                 }
             }
         }
-        catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
-            e.printStackTrace();
-        }
         return copy;
     }
 
@@ -306,14 +970,10 @@ public class Position {
      * Returns all figures of given color.
      */
     public List<Figure> getPiecesOfColor(Color color) {
-        List<Figure> figures = new ArrayList<>();
-        for(int i = 0; i < 8; i++) {
-            for(int j = 0; j < 8; j++) {
-                Figure figure = getFigure(i, j);
-                if(figure != null && figure.getColor() == color) {
-                    figures.add(figure);
-                }
-            }
+        int c = color.getValue();
+        List<Figure> figures = new ArrayList<>(pieceCount[c]);
+        for(int i = 0; i < pieceCount[c]; i++) {
+            figures.add(position[Bitboards.x(pieceList[c][i])][Bitboards.y(pieceList[c][i])]);
         }
         return figures;
     }
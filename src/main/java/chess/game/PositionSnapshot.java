@@ -0,0 +1,167 @@
+package chess.game;
+
+import chess.util.Bitboards;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Immutable snapshot of a {@link Position} packed into six longs (48 bytes). Board takes four longs with 4 bits for every square
+ * (0 for empty square, piece index ({@link Bitboards#pieceIndex}) + 1 otherwise), one long holds the state and the last one is the Zobrist key.
+ * <p>
+ * State bits:
+ * <ul>
+ *     <li>0 - white to move</li>
+ *     <li>1 - player white ({@link Position#getPlayerWhite()})</li>
+ *     <li>2-5 - castling rights</li>
+ *     <li>6-12 - en passant square + 1, 0 if en passant is not allowed</li>
+ *     <li>13-14 - white and black castled</li>
+ *     <li>16-31 - halfmove clock</li>
+ *     <li>32-47 - fullmove number</li>
+ * </ul>
+ * Snapshots are created with {@link Position#toSnapshot()} and turned back into positions with {@link Position#fromSnapshot}. They are meant to be
+ * passed between threads and stored in large numbers, hash code is taken from the key and snapshots can be written with {@link PositionSnapshot#write}.
+ */
+public final class PositionSnapshot {
+
+    /**
+     * Number of bytes written by {@link PositionSnapshot#write}.
+     */
+    public static final int BYTES = 6 * Long.BYTES;
+
+    private static final int WHITE_TO_MOVE = 1;
+    private static final int PLAYER_WHITE = 1 << 1;
+    private static final int CASTLING_SHIFT = 2;
+    private static final int EN_PASSANT_SHIFT = 6;
+    private static final int CASTLED_SHIFT = 13;
+    private static final int HALFMOVE_SHIFT = 16;
+    private static final int FULLMOVE_SHIFT = 32;
+
+    private final long board0;
+    private final long board1;
+    private final long board2;
+    private final long board3;
+    private final long state;
+    private final long key;
+
+    private PositionSnapshot(long board0, long board1, long board2, long board3, long state, long key) {
+        this.board0 = board0;
+        this.board1 = board1;
+        this.board2 = board2;
+        this.board3 = board3;
+        this.state = state;
+        this.key = key;
+    }
+
+    /**
+     * Packs given state into a snapshot.
+     * @param squares piece index for every square or {@link Bitboards#EMPTY}
+     * @param castlingRights castling rights bits of {@link Position}
+     * @param enPassantSquare square of the pawn that can be captured en passant or -1
+     * @param castled castled flags for white and black
+     */
+    static PositionSnapshot pack(int[] squares, boolean whiteToMove, boolean playerWhite, int castlingRights, int enPassantSquare, boolean[] castled,
+                                 int halfmoveClock, int fullmoveNumber, long key) {
+        long[] board = new long[4];
+        for(int square = 0; square < 64; square++) {
+            board[square >>> 4] |= (long) (squares[square] + 1) << ((square & 15) << 2);
+        }
+        long state = (whiteToMove ? WHITE_TO_MOVE : 0) | (playerWhite ? PLAYER_WHITE : 0)
+                | (long) castlingRights << CASTLING_SHIFT
+                | (long) (enPassantSquare + 1) << EN_PASSANT_SHIFT
+                | (castled[0] ? 1L : 0) << CASTLED_SHIFT | (castled[1] ? 2L : 0) << CASTLED_SHIFT
+                | (long) (halfmoveClock & 0xFFFF) << HALFMOVE_SHIFT
+                | (long) (fullmoveNumber & 0xFFFF) << FULLMOVE_SHIFT;
+        return new PositionSnapshot(board[0], board[1], board[2], board[3], state, key);
+    }
+
+    /**
+     * Returns piece index on given square or {@link Bitboards#EMPTY}.
+     */
+    public int getPiece(int square) {
+        long board = square < 16 ? board0 : square < 32 ? board1 : square < 48 ? board2 : board3;
+        return (int) (board >>> ((square & 15) << 2) & 15) - 1;
+    }
+
+    public boolean isWhiteToMove() {
+        return (state & WHITE_TO_MOVE) != 0;
+    }
+
+    public boolean getPlayerWhite() {
+        return (state & PLAYER_WHITE) != 0;
+    }
+
+    /**
+     * Returns castling rights bits, same as kept by {@link Position}.
+     */
+    public int getCastlingRights() {
+        return (int) (state >>> CASTLING_SHIFT) & 15;
+    }
+
+    /**
+     * Returns square of the pawn that can be captured en passant, or -1 if en passant is not allowed.
+     */
+    public int getEnPassantSquare() {
+        return ((int) (state >>> EN_PASSANT_SHIFT) & 127) - 1;
+    }
+
+    /**
+     * Checks whether the king of given color ({@link chess.util.Color#getValue()}) has castled.
+     */
+    public boolean isCastled(int color) {
+        return (state >>> (CASTLED_SHIFT + color) & 1) != 0;
+    }
+
+    public int getHalfmoveClock() {
+        return (int) (state >>> HALFMOVE_SHIFT) & 0xFFFF;
+    }
+
+    public int getFullmoveNumber() {
+        return (int) (state >>> FULLMOVE_SHIFT) & 0xFFFF;
+    }
+
+    /**
+     * Returns Zobrist key of the position, same as {@link Position#getKey()}.
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * Writes snapshot as six longs.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(board0);
+        out.writeLong(board1);
+        out.writeLong(board2);
+        out.writeLong(board3);
+        out.writeLong(state);
+        out.writeLong(key);
+    }
+
+    /**
+     * Reads snapshot written with {@link PositionSnapshot#write}.
+     */
+    public static PositionSnapshot read(DataInput in) throws IOException {
+        return new PositionSnapshot(in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readLong());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if(this == o) {
+            return true;
+        }
+        if(!(o instanceof PositionSnapshot)) {
+            return false;
+        }
+        PositionSnapshot other = (PositionSnapshot) o;
+        return key == other.key && state == other.state && board0 == other.board0 && board1 == other.board1
+                && board2 == other.board2 && board3 == other.board3;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (key ^ (key >>> 32));
+    }
+}
@@ -0,0 +1,82 @@
+package chess.game;
+
+import chess.util.Bitboards;
+import chess.util.Color;
+import chess.util.PackedMove;
+
+/**
+ * Static exchange evaluation (SEE) of captures. Exchange on the destination square of a capture is played out without searching, both sides
+ * recapturing with their least valuable attacker and stopping when continuing would lose material. Attackers hidden behind sliders (x-rays)
+ * join the exchange when the pieces in front of them capture. Pins and checks are ignored, so the result is an estimate.
+ * <p>
+ * Values are in pawns, same as {@link Bitboards#VALUES}.
+ */
+public final class StaticExchange {
+
+    private StaticExchange() {
+    }
+
+    /**
+     * Checks whether given capture wins at least threshold pawns of material when the exchange it starts is played out.
+     * Moves that are not captures lose nothing and win nothing, promotions are valued as the pawn that moves.
+     * @param position position in which the move is made
+     * @param move {@link PackedMove} generated for the position
+     * @param threshold material in pawns, 0 checks that the move doesn't lose material
+     */
+    public static boolean isAtLeast(Position position, int move, int threshold) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int captured = PackedMove.captured(move);
+        int swap = (captured == Bitboards.EMPTY ? 0 : Bitboards.VALUES[Bitboards.typeOf(captured)]) - threshold;
+        if(swap < 0) {
+            return false;
+        }
+        // opponent recaptures the piece that moved
+        swap = Bitboards.VALUES[Bitboards.typeOf(PackedMove.piece(move))] - swap;
+        if(swap <= 0) {
+            return true;
+        }
+        long occupied = position.getOccupied() ^ Bitboards.bit(from) ^ Bitboards.bit(to);
+        if((PackedMove.flags(move) & PackedMove.EN_PASSANT) != 0) {
+            occupied ^= Bitboards.bit(position.getEnPassantSquare());
+        }
+        Color color = Bitboards.colorOf(PackedMove.piece(move));
+        long attackers = position.attackers(to, Color.WHITE, occupied) | position.attackers(to, Color.BLACK, occupied);
+        long diagonal = position.getPieces(Color.WHITE, Bitboards.BISHOP) | position.getPieces(Color.BLACK, Bitboards.BISHOP)
+                | position.getPieces(Color.WHITE, Bitboards.QUEEN) | position.getPieces(Color.BLACK, Bitboards.QUEEN);
+        long straight = position.getPieces(Color.WHITE, Bitboards.ROOK) | position.getPieces(Color.BLACK, Bitboards.ROOK)
+                | position.getPieces(Color.WHITE, Bitboards.QUEEN) | position.getPieces(Color.BLACK, Bitboards.QUEEN);
+        // result is true if the side that made the move wins, it flips with every recapture
+        boolean result = true;
+        while(true) {
+            color = color == Color.WHITE ? Color.BLACK : Color.WHITE;
+            attackers &= occupied;
+            long own = attackers & position.getOccupancy(color);
+            if(own == 0) {
+                break;
+            }
+            result = !result;
+            int type = Bitboards.PAWN;
+            long pieces = own & position.getPieces(color, type);
+            while(pieces == 0) {
+                pieces = own & position.getPieces(color, ++type);
+            }
+            if(type == Bitboards.KING) {
+                // king can recapture only if the other side has no attackers left
+                return (attackers & ~position.getOccupancy(color)) != 0 ? !result : result;
+            }
+            swap = Bitboards.VALUES[type] - swap;
+            if(swap < (result ? 1 : 0)) {
+                break;
+            }
+            occupied ^= pieces & -pieces;
+            if(type == Bitboards.PAWN || type == Bitboards.BISHOP || type == Bitboards.QUEEN) {
+                attackers |= Bitboards.bishopAttacks(to, occupied) & diagonal;
+            }
+            if(type == Bitboards.ROOK || type == Bitboards.QUEEN) {
+                attackers |= Bitboards.rookAttacks(to, occupied) & straight;
+            }
+        }
+        return result;
+    }
+}
@@ -7,9 +7,10 @@ import chess.gui.settingsobservers.PieceStyleSettingsListener;
 import chess.gui.settingsobservers.ThemeSettingsListener;
 import chess.pieces.Figure;
 import chess.searchalgorithms.AlphaBeta2;
-import chess.searchalgorithms.AlphaBetaParallel;
+import chess.searchalgorithms.SearchAlgorithm;
+import chess.searchalgorithms.TranspositionTable;
 import chess.searchalgorithms.evaluators.SimplePositionEvaluator;
-import chess.searchalgorithms.heuristics.CheckTakingHeuristic;
+import chess.searchalgorithms.heuristics.HistoryHeuristic;
 import chess.util.ChessUtil;
 
 import javax.imageio.ImageIO;
@@ -102,7 +103,7 @@ public class MainFrame extends JFrame {
             game = new Game(false, true, boardButtons);
             setUpNewGame(true);
             MoveActionComputer comp = new MoveActionComputer(game.getPosition(), boardButtons,
-                    game.getPosition().getPlayerWhite() ? chess.util.Color.BLACK : chess.util.Color.WHITE, moveList, new AlphaBetaParallel(new CheckTakingHeuristic(), new SimplePositionEvaluator()));
+                    game.getPosition().getPlayerWhite() ? chess.util.Color.BLACK : chess.util.Color.WHITE, moveList, SearchAlgorithm.getDefault(new HistoryHeuristic(), new SimplePositionEvaluator()));
             comp.start();
         });
 
@@ -248,9 +249,10 @@ public class MainFrame extends JFrame {
     }
 
     /**
-     * Method removes all current action listeners of board buttons and adds new one.
+     * Method removes all current action listeners of board buttons and adds new one. Transposition table of the previous game is cleared.
      */
     private void setUpNewGame(boolean isComputerPlaying) {
+        TranspositionTable.getDefault().clear();
         for(int i = 0; i < 8; i++) {
             for(int j = 0; j < 8; j++) {
                 if(boardButtons[i][j].getActionListeners().length > 0) {
@@ -259,7 +261,7 @@ public class MainFrame extends JFrame {
                 boardButtons[i][j].setIcon(null);
                 boardButtons[i][j].addActionListener(
                         new MoveActionPlayer(i, j, game.getPosition(), boardButtons, moveList,
-                                new AlphaBetaParallel(new CheckTakingHeuristic(), new SimplePositionEvaluator())));
+                                SearchAlgorithm.getDefault(new HistoryHeuristic(), new SimplePositionEvaluator())));
             }
         }
         initPieces();
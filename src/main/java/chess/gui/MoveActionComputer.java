@@ -71,6 +71,9 @@ public class MoveActionComputer {
         ChessUtil.computersMove = true;
         try {
             Move move = algorithm.findBestMove(position, computersColor);
+            if(move == null) {
+                return;
+            }
             Figure figure = move.getFigure();
 
             int x = figure.getxCoordinate();
@@ -113,9 +116,8 @@ public class MoveActionComputer {
                 if(lines[lines.length - 1].length() > 16) {
                     moveList.append("\n");
                 }
-                Coordinate kingCoordinate = position.getFigureCoordinate(player, 'K');
                 if(position.allPossibleMoves(player) == 0) {
-                    if(position.numberOfAttackers(kingCoordinate.getX(), kingCoordinate.getY(), computersColor) > 0) {
+                    if(position.isInCheck(player)) {
                         WinnerFrame winner = new WinnerFrame(computersColor, "checkmate");
                         winner.pack();
                         winner.setLocation(300, 200);
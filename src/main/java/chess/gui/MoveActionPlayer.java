@@ -167,9 +167,8 @@ public class MoveActionPlayer implements ActionListener {
                             }
 
                             Color opponentColor = position.getPlayerWhite() ? Color.BLACK : Color.WHITE;
-                            Coordinate kingCoordinate = position.getFigureCoordinate(opponentColor, 'K');
                             if (position.allPossibleMoves(opponentColor) == 0) {
-                                if (position.numberOfAttackers(kingCoordinate.getX(), kingCoordinate.getY(), figure.getColor()) > 0) {
+                                if (position.isInCheck(opponentColor)) {
                                     WinnerFrame winner = new WinnerFrame(opponentColor == Color.WHITE ? Color.BLACK : Color.WHITE, "checkmate");
                                     winner.pack();
                                     winner.setLocation(300, 200);
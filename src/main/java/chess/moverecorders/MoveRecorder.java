@@ -4,7 +4,6 @@ import chess.game.Position;
 import chess.pieces.Figure;
 import chess.util.ChessUtil;
 import chess.util.Color;
-import chess.util.Coordinate;
 
 /**
  * Records the latest move appending it to move list presented in {@link javax.swing.JTextArea}. It is called by figure after move is played to update move list.
@@ -23,8 +22,7 @@ public class MoveRecorder {
      */
     public static void record(StandardAlgebraicNotation san, boolean isEating, Position position, int x, int y, Figure f, int... additionalArgs) {
         san.recordMove(isEating, position, x, y, f, additionalArgs);
-        Coordinate oppKing = position.getFigureCoordinate(f.getColor() == Color.WHITE ? Color.BLACK : Color.WHITE, 'K');
-        if(position.numberOfAttackers(oppKing.getX(), oppKing.getY(), f.getColor()) > 0) {
+        if(position.isInCheck(f.getColor() == Color.WHITE ? Color.BLACK : Color.WHITE)) {
             ChessUtil.move += "+ ";
         } else {
             ChessUtil.move += " ";
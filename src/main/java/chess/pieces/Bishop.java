@@ -19,14 +19,20 @@ public class Bishop extends  Figure {
         super(color, 'B',3, coordinate);
     }
 
+    /**
+     * Copy constructor, see {@link Figure#Figure(Figure)}.
+     */
+    public Bishop(Bishop bishop) {
+        super(bishop);
+    }
+
     @Override
-    public List<Coordinate> attacking(Position position) {
-        return ChessUtil.attackOrDefend(this, true, position);
+    public Figure copy() {
+        return new Bishop(this);
     }
 
     @Override
-    public List<Coordinate> possibleMoves(Position position) {
-        List<Coordinate> coordinates = attacking(position);
-        return ChessUtil.filterPossibleMoves(position, this, coordinates);
+    public List<Coordinate> attacking(Position position) {
+        return ChessUtil.attackOrDefend(this, true, position);
     }
 }
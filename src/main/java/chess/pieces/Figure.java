@@ -1,5 +1,6 @@
 package chess.pieces;
 
+import chess.game.MoveGenerator;
 import chess.game.Position;
 import chess.moverecorders.MoveRecorder;
 import chess.moverecorders.StandardAlgebraicNotation;
@@ -58,6 +59,22 @@ public abstract class Figure implements StandardAlgebraicNotation {
         icon = ChessUtil.getIconFor(color, symbol);
     }
 
+    /**
+     * Copy constructor. Icon is shared with given figure, so copying doesn't create new icon.
+     */
+    protected Figure(Figure figure) {
+        this.color = figure.color;
+        this.symbol = figure.symbol;
+        this.value = figure.value;
+        this.coordinate = new Coordinate(figure.getxCoordinate(), figure.getyCoordinate());
+        this.icon = figure.icon;
+    }
+
+    /**
+     * Returns copy of this figure with its own coordinate and all attributes of the figure.
+     */
+    public abstract Figure copy();
+
     /**
      *  Getter for {@link Figure#value}
      */
@@ -170,9 +187,12 @@ public abstract class Figure implements StandardAlgebraicNotation {
 
 
     /**
-     * Method calculates all possible moves for the piece on given position.
+     * Method calculates all possible moves for the piece on given position. Moves are generated by {@link MoveGenerator} which
+     * returns only legal moves, so moves that would leave own king in check are not included.
      * @param position current position of the game
      * @return list of possible moves
      */
-    public abstract List<Coordinate> possibleMoves(Position position);
+    public List<Coordinate> possibleMoves(Position position) {
+        return MoveGenerator.possibleMoves(position, this);
+    }
 }
@@ -2,11 +2,11 @@ package chess.pieces;
 
 import chess.game.Position;
 import chess.moverecorders.MoveRecorder;
+import chess.util.Bitboards;
 import chess.util.ChessUtil;
 import chess.util.Color;
 import chess.util.Coordinate;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -32,6 +32,22 @@ public class King extends Figure {
         super(color, 'K', 1000, coordinate);
     }
 
+    /**
+     * Copy constructor, see {@link Figure#Figure(Figure)}.
+     */
+    public King(King king) {
+        super(king);
+        this.isMoved = king.isMoved;
+        this.isCastled = king.isCastled;
+        this.moveDescription = king.moveDescription;
+        this.movesAfterCastling = king.movesAfterCastling;
+    }
+
+    @Override
+    public Figure copy() {
+        return new King(this);
+    }
+
     public int isMoved() {
         return isMoved;
     }
@@ -72,6 +88,7 @@ public class King extends Figure {
                     moveDescription = KINGSIDE;
                     movesAfterCastling = 0;
                     isCastled = true;
+                    position.setCastled(getColor(), true);
                     return true;
                 }
                 else if(position.getPlayerWhite() ? difY == -2 : difY == 2) {
@@ -85,6 +102,7 @@ public class King extends Figure {
                     moveDescription = QUEENSIDE;
                     movesAfterCastling = 0;
                     isCastled = true;
+                    position.setCastled(getColor(), true);
                     return true;
                 }
             }
@@ -110,9 +128,9 @@ public class King extends Figure {
                     position.getFigure(down ? 7 : 0, position.getPlayerWhite() ? 5 : 2) != null) {
                 return false;
             }
-            if(position.numberOfAttackers(down ? 7 : 0, position.getPlayerWhite() ? 4 : 3, opponentColor) > 0 ||
-                    position.numberOfAttackers(down ? 7 : 0, position.getPlayerWhite() ? 5 : 2, opponentColor) > 0 ||
-                    position.numberOfAttackers(down ? 7 : 0, position.getPlayerWhite() ? 6 : 1, opponentColor) > 0) {
+            if(position.isSquareAttacked(Bitboards.square(down ? 7 : 0, position.getPlayerWhite() ? 4 : 3), opponentColor) ||
+                    position.isSquareAttacked(Bitboards.square(down ? 7 : 0, position.getPlayerWhite() ? 5 : 2), opponentColor) ||
+                    position.isSquareAttacked(Bitboards.square(down ? 7 : 0, position.getPlayerWhite() ? 6 : 1), opponentColor)) {
 
                 return false;
             }
@@ -127,6 +145,7 @@ public class King extends Figure {
             moveDescription = KINGSIDE;
             movesAfterCastling = 0;
             isCastled = true;
+            position.setCastled(getColor(), true);
             MoveRecorder.record(this, false, position, newX, newY, this);
 
             return true;
@@ -146,9 +165,9 @@ public class King extends Figure {
                     position.getFigure(down ? 7 : 0, position.getPlayerWhite() ? 2 : 5) != null) {
                 return false;
             }
-            if(position.numberOfAttackers(down ? 7 : 0, position.getPlayerWhite() ? 4 : 3, opponentColor) > 0 ||
-                    position.numberOfAttackers(down ? 7 : 0, position.getPlayerWhite() ? 2 : 5, opponentColor) > 0 ||
-                    position.numberOfAttackers(down ? 7 : 0, position.getPlayerWhite() ? 3 : 4, opponentColor) > 0) {
+            if(position.isSquareAttacked(Bitboards.square(down ? 7 : 0, position.getPlayerWhite() ? 4 : 3), opponentColor) ||
+                    position.isSquareAttacked(Bitboards.square(down ? 7 : 0, position.getPlayerWhite() ? 2 : 5), opponentColor) ||
+                    position.isSquareAttacked(Bitboards.square(down ? 7 : 0, position.getPlayerWhite() ? 3 : 4), opponentColor)) {
                 return false;
             }
 
@@ -162,6 +181,7 @@ public class King extends Figure {
             moveDescription = QUEENSIDE;
             movesAfterCastling = 0;
             isCastled = true;
+            position.setCastled(getColor(), true);
             MoveRecorder.record(this, false, position, newX, newY, this);
 
             return true;
@@ -182,7 +202,7 @@ public class King extends Figure {
         int y = getyCoordinate();
         Figure f = position.getFigure(newX, newY);
         position.setFigure(x, y, newX, newY);
-        if(position.numberOfAttackers(newX, newY, getColor()) > 0) {
+        if(position.isSquareAttacked(Bitboards.square(newX, newY), getColor() == Color.WHITE ? Color.BLACK : Color.WHITE)) {
             position.setFigureBack(newX, newY, x, y, f);
             return false;
         }
@@ -197,126 +217,10 @@ public class King extends Figure {
 
     @Override
     public List<Coordinate> attacking(Position position) {
-        List<Coordinate> coordinates = new ArrayList<>();
-        int top = getxCoordinate() > 0 ? 1 : 0;
-        int bottom = 7 - getxCoordinate() > 0 ? 1 : 0;
-        int left = getyCoordinate() > 0 ? 1 : 0;
-        int right = 7 - getyCoordinate() > 0 ? 1 : 0;
-        int topLeft = Math.min(top, left);
-        int topRight = Math.min(top, right);
-        int bottomLeft = Math.min(bottom, left);
-        int bottomRight = Math.min(bottom, right);
-
-        if(top == 1) {
-            Coordinate c = new Coordinate(getxCoordinate() - 1,  getyCoordinate());
-            if(position.getFigure(c.getX(), c.getY()) == null ||
-                    position.getFigure(c.getX(), c.getY()).getColor() != getColor()) {
-                coordinates.add(c);
-            }
-        }
-        if(bottom == 1) {
-            Coordinate c = new Coordinate(getxCoordinate() + 1,  getyCoordinate());
-            if(position.getFigure(c.getX(), c.getY()) == null ||
-                    position.getFigure(c.getX(), c.getY()).getColor() != getColor()) {
-                coordinates.add(c);
-            }
-        }
-        if(left == 1) {
-            Coordinate c = new Coordinate(getxCoordinate(),  getyCoordinate() - 1);
-            if(position.getFigure(c.getX(), c.getY()) == null ||
-                    position.getFigure(c.getX(), c.getY()).getColor() != getColor()) {
-                coordinates.add(c);
-            }
-        }
-        if(right == 1) {
-            Coordinate c = new Coordinate(getxCoordinate(),  getyCoordinate() + 1);
-            if(position.getFigure(c.getX(), c.getY()) == null ||
-                    position.getFigure(c.getX(), c.getY()).getColor() != getColor()) {
-                coordinates.add(c);
-            }
-        }
-        if(topLeft == 1) {
-            Coordinate c = new Coordinate(getxCoordinate() - 1,  getyCoordinate() - 1);
-            if(position.getFigure(c.getX(), c.getY()) == null ||
-                    position.getFigure(c.getX(), c.getY()).getColor() != getColor()) {
-                coordinates.add(c);
-            }
-        }
-        if(topRight == 1) {
-            Coordinate c = new Coordinate(getxCoordinate() - 1,  getyCoordinate() + 1);
-            if(position.getFigure(c.getX(), c.getY()) == null ||
-                    position.getFigure(c.getX(), c.getY()).getColor() != getColor()) {
-                coordinates.add(c);
-            }
-        }
-        if(bottomLeft == 1) {
-            Coordinate c = new Coordinate(getxCoordinate() + 1,  getyCoordinate() - 1);
-            if(position.getFigure(c.getX(), c.getY()) == null ||
-                    position.getFigure(c.getX(), c.getY()).getColor() != getColor()) {
-                coordinates.add(c);
-            }
-        }
-        if(bottomRight == 1) {
-            Coordinate c = new Coordinate(getxCoordinate() + 1,  getyCoordinate() + 1);
-            if(position.getFigure(c.getX(), c.getY()) == null ||
-                    position.getFigure(c.getX(), c.getY()).getColor() != getColor()) {
-                coordinates.add(c);
-            }
-        }
-        return coordinates;
+        long attacks = Bitboards.KING_ATTACKS[Bitboards.square(getxCoordinate(), getyCoordinate())];
+        return ChessUtil.toCoordinates(attacks & ~position.getOccupancy(getColor()));
     }
 
-    @Override
-    public List<Coordinate> possibleMoves(Position position) {
-        List<Coordinate> coordinates = attacking(position);
-        boolean down = (getColor() == (position.getPlayerWhite() ? Color.WHITE : Color.BLACK)); //up or down player on the board
-        List<Coordinate> coordinates2 = new ArrayList<>();
-        if((position.getFigure(down ? 7 : 0, position.getPlayerWhite() ? 0 : 7) instanceof Rook) &&							//queenside castling
-                (position.getFigure(down ? 7 : 0, position.getPlayerWhite() ? 4 : 3) instanceof King)) {
-            Rook rook = (Rook) position.getFigure(down ? 7 : 0, position.getPlayerWhite() ? 0 : 7);
-            if(rook.isMoved() == 0 && isMoved == 0) {
-                if(position.getFigure(down ? 7 : 0, position.getPlayerWhite() ? 1 : 6) == null &&
-                        position.getFigure(down ? 7 : 0, position.getPlayerWhite() ? 2 : 5) == null &&
-                        position.getFigure(down ? 7 : 0, position.getPlayerWhite() ? 3 : 4) == null) {
-                    if(position.numberOfAttackers(down ? 7 : 0, position.getPlayerWhite() ? 4 : 3, opponentColor) == 0 &&
-                            position.numberOfAttackers(down ? 7 : 0, position.getPlayerWhite() ? 2 : 5, opponentColor) == 0 &&
-                            position.numberOfAttackers(down ? 7 : 0, position.getPlayerWhite() ? 3 : 4, opponentColor) == 0) {
-                        coordinates2.add(new Coordinate(down ? 7 : 0, position.getPlayerWhite() ? 2 : 5));
-                    }
-                }
-            }
-        }
-
-        if((position.getFigure(down ? 7 : 0, position.getPlayerWhite() ? 7 : 0) instanceof Rook) &&
-                (position.getFigure(down ? 7 : 0, position.getPlayerWhite() ? 4 : 3) instanceof King)) {
-            Rook rook = (Rook) position.getFigure(down ? 7 : 0, position.getPlayerWhite() ? 7 : 0);
-            if(rook.isMoved() == 0 && isMoved == 0) {
-                if(position.getFigure(down ? 7 : 0, position.getPlayerWhite() ? 6 : 1) == null &&
-                        position.getFigure(down ? 7 : 0, position.getPlayerWhite() ? 5 : 2) == null) {
-                    if(position.numberOfAttackers(down ? 7 : 0, position.getPlayerWhite() ? 4 : 3, opponentColor) == 0 &&
-                            position.numberOfAttackers(down ? 7 : 0, position.getPlayerWhite() ? 5 : 2, opponentColor) == 0 &&
-                            position.numberOfAttackers(down ? 7 : 0, position.getPlayerWhite() ? 6 : 1, opponentColor) == 0) {
-                        coordinates2.add(new Coordinate(down ? 7 : 0, position.getPlayerWhite() ? 6 : 1));
-                    }
-                }
-            }
-        }
-
-        int x = getxCoordinate();
-        int y = getyCoordinate();
-        coordinates2.addAll(coordinates);
-        for(Coordinate c : coordinates) {
-            Figure f = position.getFigure(c);
-            position.setFigure(getxCoordinate(), getyCoordinate(), c.getX(), c.getY());
-            if(position.numberOfAttackers(c.getX(), c.getY(), opponentColor) > 0) {
-                coordinates2.remove(c);
-            }
-            position.setFigureBack(c.getX(), c.getY(), x, y, f);
-        }
-        return coordinates2;
-    }
-
-
     @Override
     public void recordMove(boolean isEating, Position position, int x, int y, Figure f, int... additionalArgs) {
         if(movesAfterCastling == 0 && moveDescription == KINGSIDE) {
@@ -2,11 +2,11 @@ package chess.pieces;
 
 import chess.game.Position;
 import chess.moverecorders.MoveRecorder;
+import chess.util.Bitboards;
 import chess.util.ChessUtil;
 import chess.util.Color;
 import chess.util.Coordinate;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -23,6 +23,18 @@ public class Knight extends Figure {
         super(color, 'N', 3, coordinate);
     }
 
+    /**
+     * Copy constructor, see {@link Figure#Figure(Figure)}.
+     */
+    public Knight(Knight knight) {
+        super(knight);
+    }
+
+    @Override
+    public Figure copy() {
+        return new Knight(this);
+    }
+
     @Override
     public boolean move(Position position, int newX, int newY) {
         if(!ChessUtil.recordMove) {
@@ -50,33 +62,8 @@ public class Knight extends Figure {
 
     @Override
     public List<Coordinate> attacking(Position position) {
-        List<Coordinate> coordinates = new ArrayList<>();
-        Coordinate[] coords = new Coordinate[] { new Coordinate(1, 2, true), new Coordinate(2, 1, true),
-                new Coordinate(-1, 2, true), new Coordinate(-2, 1, true),
-                new Coordinate(1, -2, true), new Coordinate(-1, -2, true),
-                new Coordinate(2, -1, true),  new Coordinate(-2, -1, true)};
-
-        for(int i = 0; i < coords.length; i++) {
-            try {
-                Coordinate coordinate = new Coordinate(getxCoordinate() + coords[i].getX(),
-                        getyCoordinate() + coords[i].getY());
-                Figure figure = position.getFigure(coordinate.getX(), coordinate.getY());
-                if(figure != null && figure.getColor() == getColor()) {
-                    continue;
-                }
-                coordinates.add(coordinate);
-            }
-            catch(IllegalArgumentException e) {
-                // do nothing, exception is acceptable and expected.
-            }
-        }
-        return coordinates;
-    }
-
-    @Override
-    public List<Coordinate> possibleMoves(Position position) {
-        List<Coordinate> coordinates = attacking(position);
-        return ChessUtil.filterPossibleMoves(position, this, coordinates);
+        long attacks = Bitboards.KNIGHT_ATTACKS[Bitboards.square(getxCoordinate(), getyCoordinate())];
+        return ChessUtil.toCoordinates(attacks & ~position.getOccupancy(getColor()));
     }
 
 }
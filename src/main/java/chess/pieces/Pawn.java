@@ -2,11 +2,11 @@ package chess.pieces;
 
 import chess.game.Position;
 import chess.moverecorders.MoveRecorder;
+import chess.util.Bitboards;
 import chess.util.ChessUtil;
 import chess.util.Color;
 import chess.util.Coordinate;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -42,6 +42,19 @@ public class Pawn extends Figure {
         super(color,'P', 1, coordinate);
     }
 
+    /**
+     * Copy constructor, see {@link Figure#Figure(Figure)}.
+     */
+    public Pawn(Pawn pawn) {
+        super(pawn);
+        this.enPassant = pawn.enPassant;
+    }
+
+    @Override
+    public Figure copy() {
+        return new Pawn(this);
+    }
+
     @Override
     public boolean move(Position position, int newX, int newY) {
         int difX = newX - getxCoordinate();
@@ -153,75 +166,8 @@ public class Pawn extends Figure {
 
     @Override
     public List<Coordinate> attacking(Position position) {
-        List<Coordinate> coordinates = new ArrayList<>();
-        int x = getxCoordinate();
-        int y = getyCoordinate();
-
-        if(x == 7 || x == 0) {
-            return coordinates;
-        }
-
-        boolean down = (getColor() == (position.getPlayerWhite() ? Color.WHITE : Color.BLACK)); //up or down player on the board
-
-        if(y == 7 || y == 0) {
-            Coordinate coordinate = new Coordinate(down ? x - 1 : x + 1, y == 7 ? y - 1 : y + 1);
-            if(position.getFigure(coordinate.getX(), coordinate.getY()) == null ||
-                    position.getFigure(coordinate.getX(), coordinate.getY()).getColor() != getColor()) {
-                coordinates.add(coordinate);
-            }
-            return coordinates;
-        }
-
-        Coordinate coordinate1 = new Coordinate(down ? x - 1 : x + 1, y - 1);
-        Coordinate coordinate2 = new Coordinate(down ? x - 1 : x + 1, y + 1);
-        if(position.getFigure(coordinate1.getX(), coordinate1.getY()) == null ||
-                position.getFigure(coordinate1.getX(), coordinate1.getY()).getColor() != getColor()) {
-            coordinates.add(coordinate1);
-        }
-        if(position.getFigure(coordinate2.getX(), coordinate2.getY()) == null ||
-                position.getFigure(coordinate2.getX(), coordinate2.getY()).getColor() != getColor()) {
-            coordinates.add(coordinate2);
-        }
-
-        return coordinates;
-    }
-
-    @Override
-    public List<Coordinate> possibleMoves(Position position) {
-        List<Coordinate> coordinates = new ArrayList<>();
-        int x = getxCoordinate();
-        int y = getyCoordinate();
-
-        if(x == 7 || x == 0) {
-            return coordinates;
-        }
-
-        boolean down = (getColor() == (position.getPlayerWhite() ? Color.WHITE : Color.BLACK)); //up or down player on the board
-
-        if(x == (down ? 6 : 1)) {
-            if(position.getFigure(down ? 4 : 3, y) == null && position.getFigure(down ? 5 : 2, y) == null) {
-                coordinates.add(new Coordinate(down ? 4 : 3, y));
-            }
-        }
-
-        if(position.getFigure(down ? x - 1 : x + 1, y) == null) {
-            coordinates.add(new Coordinate(down ? x - 1 : x + 1, y));
-        }
-
-        if(y != 7 && position.getFigure(down ? x - 1 : x + 1, y + 1) != null && position.getFigure(down ? x - 1 : x + 1, y + 1).getColor() != getColor()) {
-            coordinates.add(new Coordinate(down ? x - 1 : x + 1, y + 1));
-        }
-
-        if(y != 0 && position.getFigure(down ? x - 1 : x + 1, y - 1) != null && position.getFigure(down ? x - 1 : x + 1, y - 1).getColor() != getColor()) {
-            coordinates.add(new Coordinate(down ? x - 1 : x + 1, y - 1));
-        }
-
-        if(position.enPassant.x == getxCoordinate() && (position.enPassant.y == getyCoordinate() - 1 ||
-                position.enPassant.y == getyCoordinate() + 1) && position.enPassant.enPassantAllowed) {
-            coordinates.add(new Coordinate(down ? x - 1 : x + 1, position.enPassant.y));
-        }
-
-        return ChessUtil.filterPossibleMoves(position, this, coordinates);
+        long attacks = Bitboards.PAWN_ATTACKS[position.pawnDirection(getColor())][Bitboards.square(getxCoordinate(), getyCoordinate())];
+        return ChessUtil.toCoordinates(attacks & ~position.getOccupancy(getColor()));
     }
 
     @Override
@@ -21,14 +21,20 @@ public class Queen extends  Figure {
         super(color, 'Q', 9, coordinate);
     }
 
+    /**
+     * Copy constructor, see {@link Figure#Figure(Figure)}.
+     */
+    public Queen(Queen queen) {
+        super(queen);
+    }
+
     @Override
-    public List<Coordinate> attacking(Position position) {
-        return ChessUtil.attackOrDefend(this, true, position);
+    public Figure copy() {
+        return new Queen(this);
     }
 
     @Override
-    public List<Coordinate> possibleMoves(Position position) {
-        List<Coordinate> coordinates = attacking(position);
-        return ChessUtil.filterPossibleMoves(position, this, coordinates);
+    public List<Coordinate> attacking(Position position) {
+        return ChessUtil.attackOrDefend(this, true, position);
     }
 }
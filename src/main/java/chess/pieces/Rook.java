@@ -25,6 +25,19 @@ public class Rook extends Figure {
         super(color, 'R', 5, coordinate);
     }
 
+    /**
+     * Copy constructor, see {@link Figure#Figure(Figure)}.
+     */
+    public Rook(Rook rook) {
+        super(rook);
+        this.isMoved = rook.isMoved;
+    }
+
+    @Override
+    public Figure copy() {
+        return new Rook(this);
+    }
+
     @Override
     public boolean move(Position position, int newX, int newY) {
         if(!ChessUtil.recordMove) {
@@ -52,12 +65,6 @@ public class Rook extends Figure {
         return ChessUtil.attackOrDefend(this, true, position);
     }
 
-    @Override
-    public List<Coordinate> possibleMoves(Position position) {
-        List<Coordinate> coordinates = attacking(position);
-        return ChessUtil.filterPossibleMoves(position, this, coordinates);
-    }
-
     public int isMoved() {
         return isMoved;
     }
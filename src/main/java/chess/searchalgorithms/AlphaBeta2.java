@@ -2,137 +2,489 @@ package chess.searchalgorithms;
 
 import chess.game.Position;
 import chess.searchalgorithms.evaluators.Evaluator;
-import chess.pieces.Figure;
-import chess.pieces.Pawn;
 import chess.searchalgorithms.heuristics.Heuristic;
+import chess.util.Bitboards;
 import chess.util.ChessUtil;
 import chess.util.Color;
-import chess.util.Coordinate;
 import chess.util.Move;
+import chess.util.PackedMove;
 
-import java.util.Comparator;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
 
+/**
+ * Alpha-beta search to {@link ChessUtil#DEPTH}. By default it is minimax split into max and min functions, scored from the computer's point of view.
+ * With principal variation search enabled it runs negamax instead, where only the first move of every node is searched with full window. The rest
+ * are searched with null window, which only proves that they are not better, and are searched again with full window when that fails.
+ * <p>
+ * Principal variation search can also be driven from outside, as {@link IterativeDeepening} does: {@link AlphaBeta2#newSearch} prepares
+ * the position and {@link AlphaBeta2#search} searches it to given depth with given window, following the principal variation of the previous
+ * search and stopping when asked to.
+ */
 public class AlphaBeta2 implements SearchAlgorithm {
+
+    /**
+     * Number of nodes between two checks whether the search should stop, must be power of 2.
+     */
+    private static final int CHECK_INTERVAL = 1024;
+
+    private static final BooleanSupplier NEVER = () -> false;
+
     private Position position;
     private Color computer;
     private Color player;
-    private Pawn.EnPassant enPassant = new Pawn.EnPassant();
-    private Map<Move, Double> candidates = new HashMap<>();
+    private int bestMove;
+    /**
+     * Move pickers and killer moves are indexed by remaining depth in minimax and by ply in principal variation search, where reduced
+     * searches make the same depth appear on different plies.
+     */
+    private MovePicker[] pickers = new MovePicker[ChessUtil.MAX_DEPTH + 1];
+    private int[][] killers = new int[ChessUtil.MAX_DEPTH + 1][2];
     private Heuristic heuristic;
     private Evaluator evaluator;
+    private Quiescence quiescence;
+    private TranspositionTable table;
+    private boolean principalVariationSearch;
+    private boolean nullMove = true;
+    private boolean nullMoveVerification;
+    private boolean lateMoveReductions = true;
+    private Futility futility = new Futility();
+
+    /**
+     * Value of pawn on the scale of the evaluator, used for pruning margins.
+     */
+    private double pawn;
+    private long nodes;
+
+    /**
+     * Score of {@link AlphaBeta2#bestMove} in principal variation search.
+     */
+    private double bestScore;
+
+    /**
+     * Triangular principal variation table, line found in node on ply i is in pv[i][i..pvLength[i]).
+     */
+    private int[][] pv = new int[ChessUtil.MAX_DEPTH + 1][ChessUtil.MAX_DEPTH + 1];
+    private int[] pvLength = new int[ChessUtil.MAX_DEPTH + 1];
+
+    /**
+     * Line searched first, principal variation of the previous search.
+     */
+    private int[] previousPv = new int[0];
+
+    /**
+     * True while search is on the line of {@link AlphaBeta2#previousPv}.
+     */
+    private boolean followPv;
+
+    private BooleanSupplier stop = NEVER;
+    private boolean stopped;
 
     public AlphaBeta2(Heuristic heuristic, Evaluator evaluator) {
+        this(heuristic, evaluator, TranspositionTable.getDefault());
+    }
+
+    public AlphaBeta2(Heuristic heuristic, Evaluator evaluator, TranspositionTable table) {
+        this(heuristic, evaluator, table, false);
+    }
+
+    /**
+     * @param principalVariationSearch whether principal variation search is used instead of minimax
+     */
+    public AlphaBeta2(Heuristic heuristic, Evaluator evaluator, TranspositionTable table, boolean principalVariationSearch) {
         this.heuristic = heuristic;
         this.evaluator = evaluator;
+        this.table = table;
+        this.principalVariationSearch = principalVariationSearch;
+        quiescence = new Quiescence(heuristic, evaluator);
+        for(int i = 0; i < pickers.length; i++) {
+            pickers[i] = new MovePicker();
+        }
     }
 
     private void setAttributes(Position position, Color computer) {
-        this.position = new Position(position.getPlayerWhite(), position.copy(), position.isWhiteToMove);
+        bestMove = PackedMove.NONE;
+        nodes = 0;
+        this.position = new Position(position);
         this.computer = computer;
         player = computer == Color.WHITE ? Color.BLACK : Color.WHITE;
-        enPassant.enPassantAllowed = position.enPassant.enPassantAllowed;
-        enPassant.x = position.enPassant.x;
-        enPassant.y = position.enPassant.y;
-        ChessUtil.recordMove = false;
+        quiescence.init(this.position, computer);
+        pawn = evaluator.pieceValue(this.position, Bitboards.PAWN);
+        for(int[] k : killers) {
+            Arrays.fill(k, PackedMove.NONE);
+        }
+        table.newSearch(evaluator.phase(this.position));
+        heuristic.newSearch();
     }
 
     @Override
     public Move findBestMove(Position position, Color computer) {
         setAttributes(position, computer);
-        double score = alphaBetaMax(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, ChessUtil.DEPTH);
-        position.enPassant.enPassantAllowed = enPassant.enPassantAllowed;
-        position.enPassant.x = enPassant.x;
-        position.enPassant.y = enPassant.y;
-        Move bestMove = candidates.entrySet().stream().max(Comparator.comparing(Map.Entry::getValue)).get().getKey();
+        ChessUtil.recordMove = false;
+        if(principalVariationSearch) {
+            search(ChessUtil.DEPTH, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, new int[0], NEVER);
+        } else {
+            alphaBetaMax(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, ChessUtil.DEPTH);
+        }
         ChessUtil.recordMove = true;
-        candidates.clear();
-        return bestMove;
+        return bestMove == PackedMove.NONE ? null : position.toMove(bestMove);
+    }
+
+    /**
+     * Prepares search of given position with {@link AlphaBeta2#search}, which may be called repeatedly. Position is copied, transposition
+     * table and heuristic start a new search and node count is reset.
+     * @param computer color for which the evaluator scores positions, the side to move
+     */
+    public void newSearch(Position position, Color computer) {
+        setAttributes(position, computer);
+    }
+
+    /**
+     * Searches position of the last {@link AlphaBeta2#newSearch} with principal variation search, regardless of the mode of this search.
+     * Moves of given line are searched first for as long as the search follows it, and their nodes are not cut off by the transposition
+     * table or pruned. Best root move and its score are available with {@link AlphaBeta2#getBestMove} and {@link AlphaBeta2#getBestScore}.
+     * @param depth depth of the search, at most {@link ChessUtil#MAX_DEPTH} - 1
+     * @param previousPv line searched first, usually principal variation of the previous search ({@link AlphaBeta2#getPrincipalVariation})
+     * @param stop asked every {@link AlphaBeta2#CHECK_INTERVAL} nodes whether the search should stop, it is abandoned then
+     * @return score from the point of view of the computer, meaningless if the search was stopped ({@link AlphaBeta2#isStopped})
+     */
+    public double search(int depth, double alpha, double beta, int[] previousPv, BooleanSupplier stop) {
+        bestMove = PackedMove.NONE;
+        this.previousPv = previousPv;
+        this.stop = stop;
+        stopped = false;
+        followPv = true;
+        return principalVariation(computer, alpha, beta, depth, 0, true);
     }
 
 
+    /**
+     * Scores are from the computer's point of view, while {@link TranspositionTable} keeps them from the side to move, which is the computer here.
+     */
     private double alphaBetaMax(double alpha, double beta, int depth) {
-        int result = ChessUtil.isCheckMateOrStalemate(position, player, computer);
-        if(result == ChessUtil.CHECKMATE) {
-            return ChessUtil.CHECKMATE;
-        } else if(result == ChessUtil.STALEMATE) {
-            return 0; // Stalemate real value is 0.
-        }
+        int ply = ChessUtil.DEPTH - depth;
         if(depth == 0) {
-            return evaluator.evaluate(position);
+            return quiescence.search(computer, alpha, beta, ply);
         }
-
-        List<Figure> figuresComp = position.getPiecesOfColor(computer);
-        Figure[][] tmp = position.copyByReference();
-        Pawn.EnPassant enPassant = new Pawn.EnPassant();
-        enPassant.x = position.enPassant.x;
-        enPassant.y = position.enPassant.y;
-        enPassant.enPassantAllowed = position.enPassant.enPassantAllowed;
-        List<Move> moves = heuristic.sortByHeuristic(position, figuresComp);
+        nodes++;
+        long key = position.getKey();
+        long entry = table.probe(key);
+        if(depth < ChessUtil.DEPTH) {
+            double score = TranspositionTable.cutoffScore(entry, depth, ply, alpha, beta);
+            if(!Double.isNaN(score)) {
+                return Math.max(alpha, Math.min(beta, score));
+            }
+        }
+        boolean futile = false;
+        if(depth < ChessUtil.DEPTH && depth <= futility.getMaxDepth() && !position.isInCheck(computer)) {
+            double eval = evaluator.evaluate(position);
+            if(futility.isReverseCutoff(eval, beta, depth, pawn)) {
+                return beta;
+            }
+            if(futility.isRazoring(eval, alpha, depth, pawn) && quiescence.search(computer, alpha, beta, ply) <= alpha) {
+                return alpha;
+            }
+            futile = futility.isFutile(eval, alpha, depth, pawn);
+        }
+        MovePicker picker = pickers[depth];
+        picker.init(position, computer, heuristic, TranspositionTable.move(entry), killers[depth]);
         double m = alpha;
-        for(Move move : moves) {
-            Figure f = move.getFigure();
-            Coordinate c = move.getCoordinate();
-            Coordinate previousCoordinate = new Coordinate(f.getxCoordinate(), f.getyCoordinate());
-            if(depth == ChessUtil.DEPTH) {
-                candidates.put(move, Double.NEGATIVE_INFINITY);
-            }
-            f.move(position, c.getX(), c.getY());
-            double value = alphaBetaMin(m, beta, depth - 1);
-            if(depth == ChessUtil.DEPTH) {
-                candidates.put(move, value);
+        int best = PackedMove.NONE;
+        boolean hasMoves = false;
+        for(int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            hasMoves = true;
+            boolean prunable = futile && Futility.isPrunable(position, move, killers[depth]);
+            position.makeMove(move);
+            if(prunable && !position.isInCheck(player)) {
+                position.unmakeMove();
+                continue;
             }
+            double value = alphaBetaMin(m, beta, depth - 1);
             if(m < value) {
                 m = value;
+                best = move;
+                if(depth == ChessUtil.DEPTH) {
+                    bestMove = move;
+                }
             }
-            position.setPositionBack(tmp, f, previousCoordinate);
-            position.enPassant.x = enPassant.x;
-            position.enPassant.y = enPassant.y;
-            position.enPassant.enPassantAllowed = enPassant.enPassantAllowed;
+            position.unmakeMove();
             if(m >= beta) {
+                MovePicker.storeKiller(killers[depth], move);
+                heuristic.cutoff(position, move, depth);
+                table.store(key, move, depth, TranspositionTable.LOWER, m, ply);
                 return beta;
             }
         }
+        if(!hasMoves) {
+            return position.isInCheck(computer) ? -(ChessUtil.MATE_SCORE - ply) : 0; // Stalemate real value is 0.
+        }
+        table.store(key, best, depth, TranspositionTable.bound(m, alpha, beta), m, ply);
         return m;
-
-
     }
 
+    /**
+     * Scores are from the computer's point of view, so they are negated for {@link TranspositionTable}, which keeps them from the side to move.
+     */
     private double alphaBetaMin(double alpha, double beta, int depth) {
-        int result = ChessUtil.isCheckMateOrStalemate(position, player, computer);
-        if(result == ChessUtil.CHECKMATE) {
-            return ChessUtil.CHECKMATE;
-        } else if(result == ChessUtil.STALEMATE) {
-            return 0; // Stalemate real value is 0.
-        }
+        int ply = ChessUtil.DEPTH - depth;
         if(depth == 0) {
-            return evaluator.evaluate(position);
-        }
-        List<Figure> figuresPlayer = position.getPiecesOfColor(player);
-        Figure[][] tmp = position.copyByReference();
-        Pawn.EnPassant enPassant = new Pawn.EnPassant();
-        enPassant.x = position.enPassant.x;
-        enPassant.y = position.enPassant.y;
-        enPassant.enPassantAllowed = position.enPassant.enPassantAllowed;
-        List<Move> moves = heuristic.sortByHeuristic(position, figuresPlayer);
+            return -quiescence.search(player, -beta, -alpha, ply);
+        }
+        nodes++;
+        long key = position.getKey();
+        long entry = table.probe(key);
+        double score = TranspositionTable.cutoffScore(entry, depth, ply, -beta, -alpha);
+        if(!Double.isNaN(score)) {
+            return Math.max(alpha, Math.min(beta, -score));
+        }
+        boolean futile = false;
+        if(depth <= futility.getMaxDepth() && !position.isInCheck(player)) {
+            // pruning works with values from the point of view of the player
+            double eval = -evaluator.evaluate(position);
+            if(futility.isReverseCutoff(eval, -alpha, depth, pawn)) {
+                return alpha;
+            }
+            if(futility.isRazoring(eval, -beta, depth, pawn) && quiescence.search(player, -beta, -alpha, ply) <= -beta) {
+                return beta;
+            }
+            futile = futility.isFutile(eval, -beta, depth, pawn);
+        }
+        MovePicker picker = pickers[depth];
+        picker.init(position, player, heuristic, TranspositionTable.move(entry), killers[depth]);
         double m = beta;
-        for(Move move : moves) {
-            Figure f = move.getFigure();
-            Coordinate c = move.getCoordinate();
-            Coordinate previousCoordinate = new Coordinate(f.getxCoordinate(), f.getyCoordinate());
-            f.move(position, c.getX(), c.getY());
-            m = Math.min(m, alphaBetaMax(alpha, m, depth - 1));
-            position.setPositionBack(tmp, f, previousCoordinate);
-            position.enPassant.x = enPassant.x;
-            position.enPassant.y = enPassant.y;
-            position.enPassant.enPassantAllowed = enPassant.enPassantAllowed;
+        int best = PackedMove.NONE;
+        boolean hasMoves = false;
+        for(int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            hasMoves = true;
+            boolean prunable = futile && Futility.isPrunable(position, move, killers[depth]);
+            position.makeMove(move);
+            if(prunable && !position.isInCheck(computer)) {
+                position.unmakeMove();
+                continue;
+            }
+            double value = alphaBetaMax(alpha, m, depth - 1);
+            if(value < m) {
+                m = value;
+                best = move;
+            }
+            position.unmakeMove();
             if(m <= alpha) {
+                MovePicker.storeKiller(killers[depth], move);
+                heuristic.cutoff(position, move, depth);
+                table.store(key, move, depth, TranspositionTable.LOWER, -m, ply);
                 return alpha;
             }
         }
+        if(!hasMoves) {
+            return position.isInCheck(player) ? ChessUtil.MATE_SCORE - ply : 0; // Stalemate real value is 0.
+        }
+        table.store(key, best, depth, TranspositionTable.bound(-m, -beta, -alpha), -m, ply);
         return m;
+    }
+
+    /**
+     * Principal variation search, negamax with scores from the side to move. Moves after the first are searched with null window
+     * (alpha, alpha + ulp), so they either fail low, proving that they are not better, or fail high and are searched again with full window.
+     * Nodes in which side to move is far ahead are cut off with null move pruning ({@link NullMove}) and late quiet moves are first searched
+     * to reduced depth ({@link LateMoveReductions}). Nodes near the leaves are pruned by {@link Futility}. Returns 0 as soon as search is
+     * stopped, the result is ignored then.
+     * @param ply distance from the root, which differs from the depth of the search minus depth after reduced searches
+     * @param nullAllowed false if null move must not be tried in this node, because it was made just before or this is verification search
+     */
+    private double principalVariation(Color color, double alpha, double beta, int depth, int ply, boolean nullAllowed) {
+        pvLength[ply] = ply;
+        if(depth == 0) {
+            return quiescence.search(color, alpha, beta, ply);
+        }
+        if((++nodes & (CHECK_INTERVAL - 1)) == 0 && stop.getAsBoolean()) {
+            stopped = true;
+        }
+        if(stopped) {
+            return 0;
+        }
+        long key = position.getKey();
+        long entry = table.probe(key);
+        if(ply > 0 && !followPv) {
+            double score = TranspositionTable.cutoffScore(entry, depth, ply, alpha, beta);
+            if(!Double.isNaN(score)) {
+                return score;
+            }
+        }
+        Color opponent = color == Color.WHITE ? Color.BLACK : Color.WHITE;
+        boolean inCheck = position.isInCheck(color);
+        double eval = ply > 0 && !followPv && !inCheck ? evaluate(color) : Double.NaN;
+        boolean futile = false;
+        if(!Double.isNaN(eval) && depth <= futility.getMaxDepth()) {
+            if(futility.isReverseCutoff(eval, beta, depth, pawn)) {
+                return eval;
+            }
+            if(futility.isRazoring(eval, alpha, depth, pawn)) {
+                double score = quiescence.search(color, alpha, beta, ply);
+                if(score <= alpha) {
+                    return score;
+                }
+            }
+            futile = futility.isFutile(eval, alpha, depth, pawn);
+        }
+        if(nullMove && nullAllowed && depth >= 2 && beta < Double.POSITIVE_INFINITY && eval >= beta && NullMove.isAllowed(position, color)) {
+            int reduced = Math.max(depth - 1 - NullMove.reduction(depth), 0);
+            position.makeNullMove();
+            double score = -principalVariation(opponent, -beta, -Math.nextDown(beta), reduced, ply + 1, false);
+            position.unmakeNullMove();
+            if(stopped) {
+                return 0;
+            }
+            // mate scores are not returned, mate found after null move isn't proven
+            if(score >= beta && (!nullMoveVerification || reduced == 0 || principalVariation(color, Math.nextDown(beta), beta, reduced, ply, false) >= beta)) {
+                return stopped ? 0 : beta;
+            }
+        }
+        int pvMove = followPv && ply < previousPv.length ? previousPv[ply] : PackedMove.NONE;
+        MovePicker picker = pickers[ply];
+        picker.init(position, color, heuristic, pvMove != PackedMove.NONE ? pvMove : TranspositionTable.move(entry), killers[ply]);
+        double alphaOrig = alpha;
+        double best = Double.NEGATIVE_INFINITY;
+        int nodeBestMove = PackedMove.NONE;
+        boolean reductions = lateMoveReductions && ply > 0 && depth >= 3 && !inCheck;
+        boolean hasMoves = false;
+        int searched = 0;
+        for(int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            hasMoves = true;
+            int reduction = reductions ? LateMoveReductions.reduction(depth, searched) : 0;
+            if(reduction > 0 && !LateMoveReductions.isReducible(move, killers[ply])) {
+                reduction = 0;
+            }
+            boolean prunable = futile && Futility.isPrunable(position, move, killers[ply]);
+            position.makeMove(move);
+            if(prunable && !position.isInCheck(opponent)) {
+                position.unmakeMove();
+                best = Math.max(best, futility.futilityValue(eval, depth, pawn));
+                continue;
+            }
+            followPv = pvMove != PackedMove.NONE && move == pvMove;
+            double score;
+            if(searched == 0) {
+                score = -principalVariation(opponent, -beta, -alpha, depth - 1, ply + 1, true);
+            } else {
+                score = Double.POSITIVE_INFINITY;
+                if(reduction > 0 && !position.isInCheck(opponent)) {
+                    score = -principalVariation(opponent, -Math.nextUp(alpha), -alpha, depth - 1 - reduction, ply + 1, true);
+                }
+                if(score > alpha && !stopped) {
+                    score = -principalVariation(opponent, -Math.nextUp(alpha), -alpha, depth - 1, ply + 1, true);
+                }
+                if(score > alpha && score < beta && !stopped) {
+                    score = -principalVariation(opponent, -beta, -alpha, depth - 1, ply + 1, true);
+                }
+            }
+            position.unmakeMove();
+            followPv = false;
+            searched++;
+            if(stopped) {
+                return 0;
+            }
+            if(score > best) {
+                best = score;
+                if(score > alpha) {
+                    alpha = score;
+                    nodeBestMove = move;
+                    updatePv(ply, move);
+                    if(ply == 0) {
+                        bestMove = move;
+                        bestScore = score;
+                    }
+                }
+                if(score >= beta) {
+                    MovePicker.storeKiller(killers[ply], move);
+                    heuristic.cutoff(position, move, depth);
+                    break;
+                }
+            }
+        }
+        if(!hasMoves) {
+            return inCheck ? -(ChessUtil.MATE_SCORE - ply) : 0; // Stalemate real value is 0.
+        }
+        table.store(key, nodeBestMove, depth, TranspositionTable.bound(best, alphaOrig, beta), best, ply);
+        return best;
+    }
+
+    /**
+     * Sets principal variation of given ply to given move followed by the line of the next ply.
+     */
+    private void updatePv(int ply, int move) {
+        pv[ply][ply] = move;
+        int length = pvLength[ply + 1];
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, length - ply - 1);
+        pvLength[ply] = Math.max(length, ply + 1);
+    }
+
+    /**
+     * Returns evaluation from the point of view of given color.
+     */
+    private double evaluate(Color color) {
+        double value = evaluator.evaluate(position);
+        return color == computer ? value : -value;
+    }
+
+    /**
+     * Sets null move pruning ({@link NullMove}) of principal variation search, it is enabled without verification by default.
+     * Minimax search always searches all moves.
+     * @param enabled whether null move pruning is used
+     * @param verification whether cutoffs are verified with search to reduced depth
+     */
+    public void setNullMove(boolean enabled, boolean verification) {
+        nullMove = enabled;
+        nullMoveVerification = verification;
+    }
+
+    /**
+     * Sets futility pruning, reverse futility pruning and razoring of both minimax and principal variation search, {@link Futility#Futility()} by default.
+     */
+    public void setFutility(Futility futility) {
+        this.futility = futility;
+    }
+
+    /**
+     * Sets late move reductions ({@link LateMoveReductions}) of principal variation search, they are enabled by default.
+     */
+    public void setLateMoveReductions(boolean enabled) {
+        lateMoveReductions = enabled;
+    }
+
+    /**
+     * Returns number of nodes searched since the last {@link AlphaBeta2#newSearch} or {@link AlphaBeta2#findBestMove}, including nodes
+     * of {@link Quiescence} search.
+     */
+    public long getNodes() {
+        return nodes + quiescence.getNodes();
+    }
+
+    /**
+     * Returns best root move of the last search as {@link PackedMove}, or {@link PackedMove#NONE} if no root move was searched completely
+     * with score above alpha.
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Returns score of {@link AlphaBeta2#getBestMove} from the point of view of the computer, set only by principal variation search.
+     */
+    public double getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * Returns principal variation of the last principal variation search as {@link PackedMove}s.
+     */
+    public int[] getPrincipalVariation() {
+        return Arrays.copyOf(pv[0], pvLength[0]);
+    }
 
+    /**
+     * Checks whether the last principal variation search was stopped before it finished.
+     */
+    public boolean isStopped() {
+        return stopped;
     }
 }
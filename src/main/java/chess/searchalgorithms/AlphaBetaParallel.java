@@ -1,17 +1,17 @@
 package chess.searchalgorithms;
 
 import chess.game.Position;
+import chess.game.PositionSnapshot;
 import chess.searchalgorithms.evaluators.Evaluator;
-import chess.pieces.Figure;
-import chess.pieces.Pawn.EnPassant;
 import chess.searchalgorithms.heuristics.Heuristic;
+import chess.util.Bitboards;
 import chess.util.ChessUtil;
 import chess.util.Color;
-import chess.util.Coordinate;
 import chess.util.Move;
+import chess.util.PackedMove;
 
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
@@ -22,7 +22,8 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * This is {@link AlphaBeta2} algorithm implemented with multithreaded environment.
- * It works with thread pool of size {@link Runtime#availableProcessors()}.
+ * It works with thread pool of size {@link Runtime#availableProcessors()}. Tasks share one {@link TranspositionTable}, so positions searched by one
+ * task are not searched again by the others. Nodes near the leaves are pruned by {@link Futility}.
  *
  * @author lukag
  * @version 1.1
@@ -31,14 +32,27 @@ public class AlphaBetaParallel implements SearchAlgorithm {
     private Position position;
     private Color computer;
     private Color player;
-    private EnPassant enPassant = new EnPassant();
     private ExecutorService pool;
     private Heuristic heuristic;
     private Evaluator evaluator;
+    private TranspositionTable table;
+    private Futility futility = new Futility();
 
     public AlphaBetaParallel(Heuristic heuristic, Evaluator evaluator) {
+        this(heuristic, evaluator, TranspositionTable.getDefault());
+    }
+
+    public AlphaBetaParallel(Heuristic heuristic, Evaluator evaluator, TranspositionTable table) {
         this.heuristic = heuristic;
         this.evaluator = evaluator;
+        this.table = table;
+    }
+
+    /**
+     * Sets futility pruning, reverse futility pruning and razoring of the tasks, {@link Futility#Futility()} by default.
+     */
+    public void setFutility(Futility futility) {
+        this.futility = futility;
     }
 
     private void setAttrbiutes(Position position, Color computer) {
@@ -46,9 +60,8 @@ public class AlphaBetaParallel implements SearchAlgorithm {
         this.position = position;
         this.computer = computer;
         player = computer == Color.WHITE ? Color.BLACK : Color.WHITE;
-        enPassant.enPassantAllowed = position.enPassant.enPassantAllowed;
-        enPassant.x = position.enPassant.x;
-        enPassant.y = position.enPassant.y;
+        table.newSearch(evaluator.phase(position));
+        heuristic.newSearch();
         ChessUtil.recordMove = false;
     }
 
@@ -56,9 +69,6 @@ public class AlphaBetaParallel implements SearchAlgorithm {
     public Move findBestMove(Position position, Color computer) {
         setAttrbiutes(position, computer);
         Move move = find();
-        position.enPassant.enPassantAllowed = enPassant.enPassantAllowed;
-        position.enPassant.x = enPassant.x;
-        position.enPassant.y = enPassant.y;
         ChessUtil.recordMove = true;
         return move;
     }
@@ -68,15 +78,17 @@ public class AlphaBetaParallel implements SearchAlgorithm {
      * @return
      */
     private Move find() {
-        Map<Move, Future<Double>> results = new HashMap<>();
-        List<Figure> figuresComp = position.getPiecesOfColor(computer);
+        Map<Integer, Future<Double>> results = new HashMap<>();
+        int[] moves = new int[PackedMove.MAX_MOVES];
+        int count = position.generateMoves(computer, moves);
+        if(count == 0) {
+            pool.shutdown();
+            return null;
+        }
+        PositionSnapshot snapshot = position.toSnapshot();
         try {
-            for (Figure f : figuresComp) {
-                for (Coordinate c : f.possibleMoves(position)) {
-                    results.put(new Move(f, c), pool.submit(
-                            new Task(new Position(
-                                    position.getPlayerWhite(), position.copy(), position.isWhiteToMove), f, c, evaluator)));
-                }
+            for(int i = 0; i < count; i++) {
+                results.put(moves[i], pool.submit(new Task(snapshot, moves[i], evaluator)));
             }
         } catch (Exception e) {
             e.printStackTrace();
@@ -88,14 +100,14 @@ public class AlphaBetaParallel implements SearchAlgorithm {
         } catch (InterruptedException e) {
             e.printStackTrace();
         }
-        return results.entrySet().stream().max((e1, e2) -> {
+        return position.toMove(results.entrySet().stream().max((e1, e2) -> {
             try {
                 return e1.getValue().get().compareTo(e2.getValue().get());
             } catch (InterruptedException | ExecutionException e) {
                 e.printStackTrace();
             }
             return 0;
-        }).get().getKey();
+        }).get().getKey());
     }
 
 
@@ -107,7 +119,17 @@ public class AlphaBetaParallel implements SearchAlgorithm {
     private class Task implements Callable<Double> {
 
         /**
-         * Copy of current position in game.
+         * Snapshot of current position in game.
+         */
+        private PositionSnapshot snapshot;
+
+        /**
+         * Move made before the search.
+         */
+        private int move;
+
+        /**
+         * Position created from {@link Task#snapshot} in the thread that runs the task.
          */
         private Position position;
 
@@ -117,86 +139,153 @@ public class AlphaBetaParallel implements SearchAlgorithm {
         private Evaluator evaluator;
 
         /**
-         * Makes move defined with provided figure and coordinate.
-         * @param position copy of current position in the game
-         * @param figure figure to be moved
-         * @param coordinate coordinate where #figure will be moved to
+         * Move pickers of this task, one for each depth.
+         */
+        private MovePicker[] pickers = new MovePicker[ChessUtil.MAX_DEPTH + 1];
+
+        /**
+         * Killer moves of this task, two for each depth.
+         */
+        private int[][] killers = new int[ChessUtil.MAX_DEPTH + 1][2];
+
+        /**
+         * Quiescence search of this task, used on the horizon.
+         */
+        private Quiescence quiescence;
+
+        /**
+         * Value of pawn on the scale of the evaluator, unit of {@link Futility} margins.
          */
-        private Task(Position position, Figure figure, Coordinate coordinate, Evaluator evaluator) {
-            this.position = position;
-            Figure f = this.position.getFigure(figure.getxCoordinate(), figure.getyCoordinate());
-            f.move(this.position, coordinate.getX(), coordinate.getY());
+        private double pawn;
+
+        /**
+         * @param snapshot snapshot of current position in the game
+         * @param move {@link PackedMove} to be made before the search
+         */
+        private Task(PositionSnapshot snapshot, int move, Evaluator evaluator) {
+            this.snapshot = snapshot;
+            this.move = move;
             this.evaluator = evaluator;
+            quiescence = new Quiescence(heuristic, evaluator);
+            for(int i = 0; i < pickers.length; i++) {
+                pickers[i] = new MovePicker();
+                Arrays.fill(killers[i], PackedMove.NONE);
+            }
         }
 
         @Override
         public Double call() {
+            position = Position.fromSnapshot(snapshot);
+            position.makeMove(move);
+            quiescence.init(position, computer);
+            pawn = evaluator.pieceValue(position, Bitboards.PAWN);
             return alphaBeta(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, ChessUtil.DEPTH - 1, false);
         }
 
         /**
-         * Alpha-beta pruning.
+         * Alpha-beta pruning. Scores are from the computer's point of view, {@link TranspositionTable} keeps them from the side to move.
          */
         private double alphaBeta(double alpha, double beta, int depth, boolean isMaximizing) {
-            int result = ChessUtil.isCheckMateOrStalemate(position, player, computer);
-            if(result == ChessUtil.CHECKMATE) {
-                return ChessUtil.CHECKMATE;
-            } else if(result == ChessUtil.STALEMATE) {
-                return 0; // Stalemate real value is 0.
-            }
+            Color color = isMaximizing ? computer : player;
+            int ply = ChessUtil.DEPTH - depth;
             if (depth == 0) {
-                return evaluator.evaluate(position);
+                return isMaximizing ? quiescence.search(color, alpha, beta, ply) : -quiescence.search(color, -beta, -alpha, ply);
             }
+            long key = position.getKey();
+            long entry = table.probe(key);
+            double score = isMaximizing ? TranspositionTable.cutoffScore(entry, depth, ply, alpha, beta)
+                    : -TranspositionTable.cutoffScore(entry, depth, ply, -beta, -alpha);
+            if(!Double.isNaN(score)) {
+                return Math.max(alpha, Math.min(beta, score));
+            }
+            // futility is decided from the side to move, whose window is (-beta, -alpha) in minimizing nodes
+            Color opponent = isMaximizing ? player : computer;
+            boolean futile = false;
+            if(depth <= futility.getMaxDepth() && !position.isInCheck(color)) {
+                double value = evaluator.evaluate(position);
+                double eval = isMaximizing ? value : -value;
+                double lower = isMaximizing ? alpha : -beta;
+                double upper = isMaximizing ? beta : -alpha;
+                if(futility.isReverseCutoff(eval, upper, depth, pawn)) {
+                    return isMaximizing ? beta : alpha;
+                }
+                if(futility.isRazoring(eval, lower, depth, pawn) && quiescence.search(color, lower, upper, ply) <= lower) {
+                    return isMaximizing ? alpha : beta;
+                }
+                futile = futility.isFutile(eval, lower, depth, pawn);
+            }
+            MovePicker picker = pickers[depth];
+            picker.init(position, color, heuristic, TranspositionTable.move(entry), killers[depth]);
+            int best = PackedMove.NONE;
+            boolean hasMoves = false;
             if (isMaximizing) {
-                List<Figure> figuresComp = position.getPiecesOfColor(computer);
-                Figure[][] tmp = position.copyByReference();
-                EnPassant enPassant = new EnPassant();
-                enPassant.x = position.enPassant.x;
-                enPassant.y = position.enPassant.y;
-                enPassant.enPassantAllowed = position.enPassant.enPassantAllowed;
                 double m = alpha;
-                List<Move> moves = heuristic.sortByHeuristic(position, figuresComp);
-                for(Move move : moves) {
-                    Figure f = move.getFigure();
-                    Coordinate c = move.getCoordinate();
-                    Coordinate previousCoordinate = new Coordinate(f.getxCoordinate(), f.getyCoordinate());
-                    f.move(position, c.getX(), c.getY());
-                    m = Math.max(m, alphaBeta(m, beta, depth - 1, false));
-                    position.setPositionBack(tmp, f, previousCoordinate);
-                    position.enPassant.x = enPassant.x;
-                    position.enPassant.y = enPassant.y;
-                    position.enPassant.enPassantAllowed = enPassant.enPassantAllowed;
+                for(int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+                    hasMoves = true;
+                    boolean prunable = futile && Futility.isPrunable(position, move, killers[depth]);
+                    position.makeMove(move);
+                    if(prunable && !position.isInCheck(opponent)) {
+                        position.unmakeMove();
+                        continue;
+                    }
+                    double value = alphaBeta(m, beta, depth - 1, false);
+                    position.unmakeMove();
+                    if (value > m) {
+                        m = value;
+                        best = move;
+                    }
                     if (m >= beta) {
+                        MovePicker.storeKiller(killers[depth], move);
+                        heuristic.cutoff(position, move, depth);
+                        table.store(key, move, depth, TranspositionTable.LOWER, m, ply);
                         return beta;
                     }
                 }
+                if(!hasMoves) {
+                    return mateScore(color, ply, isMaximizing);
+                }
+                table.store(key, best, depth, TranspositionTable.bound(m, alpha, beta), m, ply);
                 return m;
             } else {
-                List<Figure> figuresPlayer = position.getPiecesOfColor(player);
-                Figure[][] tmp = position.copyByReference();
-                EnPassant enPassant = new EnPassant();
-                enPassant.x = position.enPassant.x;
-                enPassant.y = position.enPassant.y;
-                enPassant.enPassantAllowed = position.enPassant.enPassantAllowed;
-                List<Move> moves = heuristic.sortByHeuristic(position, figuresPlayer);
                 double m = beta;
-                for(Move move : moves) {
-                    Figure f = move.getFigure();
-                    Coordinate c = move.getCoordinate();
-                    Coordinate previousCoordinate = new Coordinate(f.getxCoordinate(), f.getyCoordinate());
-                    f.move(position, c.getX(), c.getY());
-                    m = Math.min(m, alphaBeta(alpha, m, depth - 1, true));
-                    position.setPositionBack(tmp, f, previousCoordinate);
-                    position.enPassant.x = enPassant.x;
-                    position.enPassant.y = enPassant.y;
-                    position.enPassant.enPassantAllowed = enPassant.enPassantAllowed;
+                for(int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+                    hasMoves = true;
+                    boolean prunable = futile && Futility.isPrunable(position, move, killers[depth]);
+                    position.makeMove(move);
+                    if(prunable && !position.isInCheck(opponent)) {
+                        position.unmakeMove();
+                        continue;
+                    }
+                    double value = alphaBeta(alpha, m, depth - 1, true);
+                    position.unmakeMove();
+                    if (value < m) {
+                        m = value;
+                        best = move;
+                    }
                     if (m <= alpha) {
+                        MovePicker.storeKiller(killers[depth], move);
+                        heuristic.cutoff(position, move, depth);
+                        table.store(key, move, depth, TranspositionTable.LOWER, -m, ply);
                         return alpha;
                     }
                 }
+                if(!hasMoves) {
+                    return mateScore(color, ply, isMaximizing);
+                }
+                table.store(key, best, depth, TranspositionTable.bound(-m, -beta, -alpha), -m, ply);
                 return m;
             }
         }
+
+        /**
+         * Score of position in which given color has no legal moves. Mate found closer to the root has bigger value.
+         */
+        private double mateScore(Color color, int ply, boolean isMaximizing) {
+            if(!position.isInCheck(color)) {
+                return 0; // Stalemate real value is 0.
+            }
+            return isMaximizing ? -(ChessUtil.MATE_SCORE - ply) : ChessUtil.MATE_SCORE - ply;
+        }
     }
 
 }
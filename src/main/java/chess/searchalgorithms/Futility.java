@@ -0,0 +1,133 @@
+package chess.searchalgorithms;
+
+import chess.game.Position;
+import chess.game.StaticExchange;
+import chess.util.ChessUtil;
+import chess.util.PackedMove;
+
+/**
+ * Pruning of nodes near the leaves based on static evaluation, used by the searches. All of them compare static evaluation of the node with
+ * alpha or beta, and margin for the node's depth covers how much the evaluation can change in the rest of the search:
+ * <ul>
+ *     <li>reverse futility (static null move) pruning - node in which evaluation minus margin is still above beta is cut off,</li>
+ *     <li>razoring - when evaluation plus margin is below alpha, {@link Quiescence} search is run and the node fails low if it confirms it,</li>
+ *     <li>futility pruning - when evaluation plus margin is below alpha, quiet moves and captures that lose material ({@link StaticExchange})
+ *     are not searched, except killer moves and moves that give check.</li>
+ * </ul>
+ * Margins are in pawns ({@link chess.searchalgorithms.evaluators.Evaluator#pieceValue}) and indexed by remaining depth, depths without margin
+ * are not pruned. Nodes in which side to move is in check are never pruned. All values are from the point of view of the side to move.
+ */
+public class Futility {
+
+    private static final double[] DEFAULT_FUTILITY = new double[] {0, 3, 5};
+    private static final double[] DEFAULT_REVERSE = new double[] {0, 2, 4, 6};
+    private static final double[] DEFAULT_RAZORING = new double[] {0, 3, 5};
+
+    /**
+     * Scores beyond this bound are mate scores, no pruning is done against them.
+     */
+    private static final double MATE_BOUND = ChessUtil.MATE_SCORE - ChessUtil.MAX_DEPTH;
+
+    private final double[] futilityMargins;
+    private final double[] reverseMargins;
+    private final double[] razoringMargins;
+    private final int maxDepth;
+
+    /**
+     * Futility pruning with default margins: futility pruning at depths 1 and 2, reverse futility pruning at depths 1 to 3 and razoring at
+     * depths 1 and 2.
+     */
+    public Futility() {
+        this(DEFAULT_FUTILITY, DEFAULT_REVERSE, DEFAULT_RAZORING);
+    }
+
+    /**
+     * @param futilityMargins margins of futility pruning in pawns by depth, 0 if depth is not pruned
+     * @param reverseMargins margins of reverse futility pruning in pawns by depth, 0 if depth is not pruned
+     * @param razoringMargins margins of razoring in pawns by depth, 0 if depth is not razored
+     */
+    public Futility(double[] futilityMargins, double[] reverseMargins, double[] razoringMargins) {
+        this.futilityMargins = futilityMargins.clone();
+        this.reverseMargins = reverseMargins.clone();
+        this.razoringMargins = razoringMargins.clone();
+        maxDepth = Math.max(futilityMargins.length, Math.max(reverseMargins.length, razoringMargins.length)) - 1;
+    }
+
+    /**
+     * Returns futility pruning without any margins, which never prunes.
+     */
+    public static Futility disabled() {
+        return new Futility(new double[0], new double[0], new double[0]);
+    }
+
+    /**
+     * Returns the biggest depth at which some pruning is done. Static evaluation is needed only up to this depth.
+     */
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Checks whether node can be cut off by reverse futility pruning.
+     * @param eval static evaluation of the node
+     * @param pawn value of pawn on the scale of evaluation
+     */
+    public boolean isReverseCutoff(double eval, double beta, int depth, double pawn) {
+        double margin = margin(reverseMargins, depth);
+        return margin > 0 && Math.abs(beta) < MATE_BOUND && eval - margin * pawn >= beta;
+    }
+
+    /**
+     * Checks whether node is so far below alpha that it should be razored, i.e. searched with quiescence search only.
+     * @param eval static evaluation of the node
+     * @param pawn value of pawn on the scale of evaluation
+     */
+    public boolean isRazoring(double eval, double alpha, int depth, double pawn) {
+        double margin = margin(razoringMargins, depth);
+        return margin > 0 && Math.abs(alpha) < MATE_BOUND && eval + margin * pawn <= alpha;
+    }
+
+    /**
+     * Checks whether moves of the node can't raise the score to alpha, so moves accepted by {@link Futility#isPrunable} can be skipped.
+     * @param eval static evaluation of the node
+     * @param pawn value of pawn on the scale of evaluation
+     */
+    public boolean isFutile(double eval, double alpha, int depth, double pawn) {
+        return Math.abs(alpha) < MATE_BOUND && futilityValue(eval, depth, pawn) <= alpha;
+    }
+
+    /**
+     * Returns the most the evaluation is expected to rise in the node, or positive infinity if depth is not pruned by futility pruning.
+     * It is used as the score of skipped moves.
+     * @param eval static evaluation of the node
+     * @param pawn value of pawn on the scale of evaluation
+     */
+    public double futilityValue(double eval, int depth, double pawn) {
+        double margin = margin(futilityMargins, depth);
+        return margin > 0 ? eval + margin * pawn : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Checks whether given move can be skipped in futile node. Such moves are quiet moves that are not killer moves and captures that lose
+     * material. Moves that give check can't be skipped either, which has to be checked after the move is made.
+     * @param killers killer moves of the node
+     */
+    public static boolean isPrunable(Position position, int move, int[] killers) {
+        if(PackedMove.isPromotion(move)) {
+            return false;
+        }
+        if(PackedMove.isCapture(move)) {
+            return !StaticExchange.isAtLeast(position, move, 0);
+        }
+        for(int killer : killers) {
+            if(killer == move) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static double margin(double[] margins, int depth) {
+        return depth < margins.length ? margins[depth] : 0;
+    }
+}
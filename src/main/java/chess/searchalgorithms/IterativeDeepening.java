@@ -0,0 +1,293 @@
+package chess.searchalgorithms;
+
+import chess.game.Position;
+import chess.searchalgorithms.evaluators.Evaluator;
+import chess.searchalgorithms.heuristics.Heuristic;
+import chess.util.Bitboards;
+import chess.util.ChessUtil;
+import chess.util.Color;
+import chess.util.Move;
+import chess.util.PackedMove;
+
+/**
+ * Iterative deepening search. Position is searched to depth 1, 2, 3, ... until time or node limit runs out or maximum depth is reached,
+ * so response time of the move is bounded instead of its depth and some move is always ready. Principal variation of every completed
+ * iteration is searched first in the next one, which makes the deeper iteration cut off most of the tree searched before. Outside of that line
+ * results of earlier iterations and searches come from {@link TranspositionTable}.
+ * <p>
+ * Each iteration is principal variation search of {@link AlphaBeta2} ({@link AlphaBeta2#search}), so pruning, reductions and move ordering
+ * are the same as there and are set on this search with the same methods. Limits are checked while the iteration is searched, and search can
+ * also be stopped from another thread with {@link IterativeDeepening#stop()}. Unfinished iteration is abandoned, but root moves that were searched
+ * completely are still used, because the best move of previous iteration is always searched first.
+ * <p>
+ * Iterations after the first are searched with aspiration window around the score of the previous iteration. When the score falls outside
+ * of the window, window is widened on that side and the iteration is searched again. Numbers of fail highs and fail lows are counted,
+ * so the window can be tuned with {@link IterativeDeepening#setAspirationWindow}.
+ */
+public class IterativeDeepening implements SearchAlgorithm {
+
+    /**
+     * Default half width of aspiration window in pawns.
+     */
+    public static final double DEFAULT_ASPIRATION_WINDOW = 0.5;
+
+    /**
+     * Default factor by which aspiration window is widened after it fails.
+     */
+    public static final double DEFAULT_ASPIRATION_GROWTH = 2;
+
+    /**
+     * Default time limit for one move in milliseconds, can be changed with {@code -Dchess.searchTime=milliseconds}.
+     */
+    public static final long DEFAULT_TIME_LIMIT = 5000;
+
+    private final Evaluator evaluator;
+
+    /**
+     * Search of the iterations.
+     */
+    private final AlphaBeta2 search;
+
+    /**
+     * Time limit for one move in milliseconds, 0 for no limit.
+     */
+    private final long timeLimit;
+
+    /**
+     * Node limit for one move, 0 for no limit.
+     */
+    private final long nodeLimit;
+
+    /**
+     * Maximum depth of iterations.
+     */
+    private final int maxDepth;
+
+    private int[] leafMoves = new int[PackedMove.MAX_MOVES];
+
+    /**
+     * Principal variation of the last completed iteration.
+     */
+    private int[] previousPv = new int[0];
+
+    private long startTime;
+    private volatile boolean stopped;
+
+    private int bestMove;
+    private double bestScore;
+    private int completedDepth;
+
+    /**
+     * Half width of aspiration window in pawns, 0 if iterations are searched with full window.
+     */
+    private double aspirationWindow = DEFAULT_ASPIRATION_WINDOW;
+    private double aspirationGrowth = DEFAULT_ASPIRATION_GROWTH;
+
+    private int aspirationSearches;
+    private int failHighs;
+    private int failLows;
+
+    /**
+     * @param table transposition table, may be shared with other searches
+     * @param timeLimit time limit for one move in milliseconds, 0 for no limit
+     * @param nodeLimit node limit for one move, 0 for no limit
+     * @param maxDepth maximum depth, at most {@link ChessUtil#MAX_DEPTH} - 1
+     */
+    public IterativeDeepening(Heuristic heuristic, Evaluator evaluator, TranspositionTable table, long timeLimit, long nodeLimit, int maxDepth) {
+        this.evaluator = evaluator;
+        this.timeLimit = timeLimit;
+        this.nodeLimit = nodeLimit;
+        this.maxDepth = Math.min(maxDepth, ChessUtil.MAX_DEPTH - 1);
+        search = new AlphaBeta2(heuristic, evaluator, table, true);
+    }
+
+    /**
+     * Search with {@link TranspositionTable#getDefault()} table.
+     * @param timeLimit time limit for one move in milliseconds, 0 for no limit
+     * @param nodeLimit node limit for one move, 0 for no limit
+     * @param maxDepth maximum depth, at most {@link ChessUtil#MAX_DEPTH} - 1
+     */
+    public IterativeDeepening(Heuristic heuristic, Evaluator evaluator, long timeLimit, long nodeLimit, int maxDepth) {
+        this(heuristic, evaluator, TranspositionTable.getDefault(), timeLimit, nodeLimit, maxDepth);
+    }
+
+    /**
+     * Search limited only by time, with {@link TranspositionTable#getDefault()} table.
+     * @param timeLimit time limit for one move in milliseconds
+     */
+    public IterativeDeepening(Heuristic heuristic, Evaluator evaluator, long timeLimit) {
+        this(heuristic, evaluator, timeLimit, 0, ChessUtil.MAX_DEPTH - 1);
+    }
+
+    @Override
+    public Move findBestMove(Position position, Color computer) {
+        int move = search(position, computer);
+        return move == PackedMove.NONE ? null : position.toMove(move);
+    }
+
+    /**
+     * Runs iterative deepening and returns best {@link PackedMove} or {@link PackedMove#NONE} if there are no legal moves.
+     */
+    public int search(Position position, Color computer) {
+        startTime = System.nanoTime();
+        stopped = false;
+        previousPv = new int[0];
+        completedDepth = 0;
+        bestScore = 0;
+        search.newSearch(position, computer);
+        // some legal move is ready even if the first iteration doesn't finish
+        bestMove = position.generateMoves(computer, leafMoves) > 0 ? leafMoves[0] : PackedMove.NONE;
+        aspirationSearches = 0;
+        failHighs = 0;
+        failLows = 0;
+        double pawn = evaluator.pieceValue(position, Bitboards.PAWN);
+        ChessUtil.recordMove = false;
+        for(int depth = 1; depth <= maxDepth && bestMove != PackedMove.NONE && !stopped; depth++) {
+            double previous = bestScore;
+            double window = aspirationWindow * pawn;
+            double alpha = Double.NEGATIVE_INFINITY;
+            double beta = Double.POSITIVE_INFINITY;
+            if(depth > 1 && window > 0 && Math.abs(previous) < ChessUtil.MATE_SCORE - ChessUtil.MAX_DEPTH) {
+                alpha = previous - window;
+                beta = previous + window;
+                aspirationSearches++;
+            }
+            while(true) {
+                double score = search.search(depth, alpha, beta, previousPv, this::isOutOfLimits);
+                if(search.getBestMove() != PackedMove.NONE) {
+                    bestMove = search.getBestMove();
+                    bestScore = search.getBestScore();
+                }
+                if(search.isStopped()) {
+                    stopped = true;
+                }
+                if(stopped || (score > alpha && score < beta)) {
+                    break;
+                }
+                // score is only a bound, window is widened past it on the side where it failed
+                window *= aspirationGrowth;
+                if(score <= alpha) {
+                    failLows++;
+                    alpha = window < ChessUtil.MATE_SCORE ? Math.min(previous, score) - window : Double.NEGATIVE_INFINITY;
+                } else {
+                    failHighs++;
+                    beta = window < ChessUtil.MATE_SCORE ? Math.max(previous, score) + window : Double.POSITIVE_INFINITY;
+                }
+            }
+            if(stopped) {
+                break;
+            }
+            completedDepth = depth;
+            previousPv = search.getPrincipalVariation();
+            // next iteration takes a few times longer, so it's not started if it most likely can't finish
+            if(timeLimit > 0 && elapsed() * 2 > timeLimit) {
+                break;
+            }
+        }
+        ChessUtil.recordMove = true;
+        return bestMove;
+    }
+
+    /**
+     * Sets aspiration window of the following searches.
+     * @param window half width of the window in pawns ({@link Evaluator#pieceValue}), 0 for searching every iteration with full window
+     * @param growth factor by which the window is widened after it fails, greater than 1
+     */
+    public void setAspirationWindow(double window, double growth) {
+        aspirationWindow = window;
+        aspirationGrowth = growth;
+    }
+
+    /**
+     * Sets null move pruning ({@link NullMove}) of the following searches, it is enabled without verification by default.
+     * @param enabled whether null move pruning is used
+     * @param verification whether cutoffs are verified with search to reduced depth
+     */
+    public void setNullMove(boolean enabled, boolean verification) {
+        search.setNullMove(enabled, verification);
+    }
+
+    /**
+     * Sets late move reductions ({@link LateMoveReductions}) of the following searches, they are enabled by default.
+     */
+    public void setLateMoveReductions(boolean enabled) {
+        search.setLateMoveReductions(enabled);
+    }
+
+    /**
+     * Sets futility pruning, reverse futility pruning and razoring of the following searches, {@link Futility#Futility()} by default.
+     */
+    public void setFutility(Futility futility) {
+        search.setFutility(futility);
+    }
+
+    /**
+     * Stops the search, {@link IterativeDeepening#search} returns best move found so far.
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Checks whether the search was stopped or ran out of time or nodes.
+     */
+    private boolean isOutOfLimits() {
+        return stopped || (timeLimit > 0 && elapsed() >= timeLimit) || (nodeLimit > 0 && getNodes() >= nodeLimit);
+    }
+
+    /**
+     * Milliseconds since the start of the search.
+     */
+    private long elapsed() {
+        return (System.nanoTime() - startTime) / 1_000_000;
+    }
+
+    /**
+     * Returns depth of the last completed iteration.
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Returns number of searched nodes, including nodes of quiescence search.
+     */
+    public long getNodes() {
+        return search.getNodes();
+    }
+
+    /**
+     * Returns score of the best move from the point of view of the computer.
+     */
+    public double getScore() {
+        return bestScore;
+    }
+
+    /**
+     * Returns number of iterations of the last search that started with aspiration window.
+     */
+    public int getAspirationSearches() {
+        return aspirationSearches;
+    }
+
+    /**
+     * Returns number of re-searches of the last search after score was above aspiration window.
+     */
+    public int getFailHighs() {
+        return failHighs;
+    }
+
+    /**
+     * Returns number of re-searches of the last search after score was below aspiration window.
+     */
+    public int getFailLows() {
+        return failLows;
+    }
+
+    /**
+     * Returns principal variation of the last completed iteration as {@link PackedMove}s.
+     */
+    public int[] getPrincipalVariation() {
+        return previousPv.clone();
+    }
+}
@@ -0,0 +1,65 @@
+package chess.searchalgorithms;
+
+import chess.util.ChessUtil;
+import chess.util.PackedMove;
+
+/**
+ * Late move reductions shared by the searches. Moves are ordered by {@link MovePicker}, so quiet moves that come late in a node rarely turn out
+ * to be the best and are searched to reduced depth with null window. A reduced move that beats alpha is searched again to full depth.
+ * Captures, promotions, killer moves, moves that give check and moves made in check are never reduced.
+ * <p>
+ * Reductions are kept in a table by depth and number of moves searched before the move, they grow with the logarithm of both.
+ */
+public final class LateMoveReductions {
+
+    /**
+     * Minimal depth of node in which moves are reduced.
+     */
+    private static final int MIN_DEPTH = 3;
+
+    /**
+     * Number of moves of a node that are never reduced.
+     */
+    private static final int MIN_MOVES = 3;
+
+    private static final int[][] REDUCTIONS = new int[ChessUtil.MAX_DEPTH + 1][PackedMove.MAX_MOVES];
+
+    static {
+        for(int depth = MIN_DEPTH; depth <= ChessUtil.MAX_DEPTH; depth++) {
+            for(int moves = MIN_MOVES; moves < PackedMove.MAX_MOVES; moves++) {
+                int reduction = Math.max(1, (int) (0.5 + Math.log(depth) * Math.log(moves + 1) / 2.25));
+                // reduced search is at least one ply deep
+                REDUCTIONS[depth][moves] = Math.min(reduction, depth - 2);
+            }
+        }
+    }
+
+    private LateMoveReductions() {
+    }
+
+    /**
+     * Returns reduction of a quiet move, 0 if the move is searched to full depth.
+     * @param depth depth of the node
+     * @param moves number of moves of the node searched before this one
+     */
+    public static int reduction(int depth, int moves) {
+        return REDUCTIONS[Math.min(depth, ChessUtil.MAX_DEPTH)][Math.min(moves, PackedMove.MAX_MOVES - 1)];
+    }
+
+    /**
+     * Checks whether given move may be reduced. Move that gives check must also be excluded, which is known only after it is made.
+     * @param move move of the node
+     * @param killers killer moves of the node
+     */
+    public static boolean isReducible(int move, int[] killers) {
+        if(PackedMove.isCapture(move) || PackedMove.isPromotion(move)) {
+            return false;
+        }
+        for(int killer : killers) {
+            if(killer == move) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,235 @@
+package chess.searchalgorithms;
+
+import chess.game.MoveGenerator;
+import chess.game.Position;
+import chess.game.StaticExchange;
+import chess.searchalgorithms.heuristics.Heuristic;
+import chess.util.Bitboards;
+import chess.util.Color;
+import chess.util.PackedMove;
+
+/**
+ * Staged move picker used by {@link SearchAlgorithm}s. Moves are returned one by one in stages: hash move, captures and promotions, killer moves,
+ * quiet moves and captures that lose material ({@link StaticExchange}), which are deferred from the capture stage. Captures and quiet moves are generated only when their stage is reached, and the next move is selected as the best scored remaining move
+ * ({@link Heuristic#score}) instead of sorting all moves. When one of the first moves causes a cutoff, remaining moves are never generated or scored.
+ * <p>
+ * Search keeps one picker for every depth, so pickers are reused with {@link MovePicker#init} and no memory is allocated during search.
+ * {@link Quiescence} search uses {@link MovePicker#initCaptures}, which stops after the captures and leaves out captures that lose material.
+ */
+public class MovePicker {
+
+    private static final int HASH = 0;
+    private static final int GENERATE_CAPTURES = 1;
+    private static final int CAPTURES = 2;
+    private static final int KILLERS = 3;
+    private static final int GENERATE_QUIETS = 4;
+    private static final int QUIETS = 5;
+    private static final int BAD_CAPTURES = 6;
+    private static final int DONE = 7;
+
+    /**
+     * Moves of the current stage. Captures that lose material are moved to the beginning, before {@link MovePicker#badCapturesEnd}.
+     * Part after {@link MovePicker#end} is also used for checking whether hash and killer moves are legal.
+     */
+    private final int[] moves = new int[PackedMove.MAX_MOVES];
+
+    /**
+     * Scores of {@link MovePicker#moves}.
+     */
+    private final int[] scores = new int[PackedMove.MAX_MOVES];
+
+    private Position position;
+    private Color color;
+    private Heuristic heuristic;
+    private int hashMove;
+    private int[] killers;
+    private int stage;
+    private int current;
+    private int end;
+    private int killerIndex;
+    private int badCapturesEnd;
+    private boolean capturesOnly;
+
+    /**
+     * Prepares picker for new node.
+     * @param position position of the node
+     * @param color side to move
+     * @param heuristic heuristic used for scoring captures and quiet moves
+     * @param hashMove best move found earlier in this position or {@link PackedMove#NONE}. Only from and to squares and promotion are needed,
+     *                 as in moves of {@link TranspositionTable}
+     * @param killers quiet moves that caused cutoff in sibling nodes, {@link PackedMove#NONE} for empty slots
+     */
+    public void init(Position position, Color color, Heuristic heuristic, int hashMove, int[] killers) {
+        this.position = position;
+        this.color = color;
+        this.heuristic = heuristic;
+        this.hashMove = hashMove;
+        this.killers = killers;
+        capturesOnly = false;
+        stage = HASH;
+        current = 0;
+        end = 0;
+        badCapturesEnd = 0;
+    }
+
+    /**
+     * Prepares picker for node in which only captures and promotions are searched. There is no hash move and no killer moves.
+     * @param position position of the node
+     * @param color side to move
+     * @param heuristic heuristic used for scoring captures
+     */
+    public void initCaptures(Position position, Color color, Heuristic heuristic) {
+        this.position = position;
+        this.color = color;
+        this.heuristic = heuristic;
+        hashMove = PackedMove.NONE;
+        killers = null;
+        capturesOnly = true;
+        stage = GENERATE_CAPTURES;
+        current = 0;
+        end = 0;
+        badCapturesEnd = 0;
+    }
+
+    /**
+     * Remembers given move as killer move of a node if it is quiet move. The newest killer is kept in the first slot.
+     * @param killers killer moves of the node
+     * @param move move that caused cutoff
+     */
+    public static void storeKiller(int[] killers, int move) {
+        if(PackedMove.isCapture(move) || PackedMove.isPromotion(move) || killers[0] == move) {
+            return;
+        }
+        System.arraycopy(killers, 0, killers, 1, killers.length - 1);
+        killers[0] = move;
+    }
+
+    /**
+     * Returns next legal move or {@link PackedMove#NONE} if there are no more moves.
+     */
+    public int next() {
+        while(true) {
+            switch(stage) {
+                case HASH:
+                    stage = GENERATE_CAPTURES;
+                    hashMove = legalMove(hashMove);
+                    if(hashMove != PackedMove.NONE) {
+                        return hashMove;
+                    }
+                    break;
+                case GENERATE_CAPTURES:
+                    generate(MoveGenerator.CAPTURES, 0);
+                    stage = CAPTURES;
+                    break;
+                case CAPTURES:
+                    while(current < end) {
+                        int move = pickBest();
+                        if(move == hashMove) {
+                            continue;
+                        }
+                        if(!PackedMove.isPromotion(move) && !StaticExchange.isAtLeast(position, move, 0)) {
+                            // picked moves are before current, so the slot can be reused
+                            moves[badCapturesEnd++] = move;
+                            continue;
+                        }
+                        return move;
+                    }
+                    killerIndex = 0;
+                    stage = capturesOnly ? DONE : KILLERS;
+                    break;
+                case KILLERS:
+                    while(killerIndex < killers.length) {
+                        int killer = killers[killerIndex++];
+                        if(killer != PackedMove.NONE && killer != hashMove && !PackedMove.isCapture(killer) && !PackedMove.isPromotion(killer)
+                                && !isKiller(killer, killerIndex - 1) && legalMove(killer) == killer) {
+                            return killer;
+                        }
+                    }
+                    stage = GENERATE_QUIETS;
+                    break;
+                case GENERATE_QUIETS:
+                    generate(MoveGenerator.QUIETS, badCapturesEnd);
+                    stage = QUIETS;
+                    break;
+                case QUIETS:
+                    while(current < end) {
+                        int move = pickBest();
+                        if(move != hashMove && !isKiller(move, killers.length)) {
+                            return move;
+                        }
+                    }
+                    current = 0;
+                    stage = BAD_CAPTURES;
+                    break;
+                case BAD_CAPTURES:
+                    if(current < badCapturesEnd) {
+                        return moves[current++];
+                    }
+                    stage = DONE;
+                    break;
+                default:
+                    return PackedMove.NONE;
+            }
+        }
+    }
+
+    /**
+     * Generates and scores moves of given type, starting at given index of {@link MovePicker#moves}.
+     */
+    private void generate(int type, int start) {
+        current = start;
+        end = MoveGenerator.generate(position, color, moves, start, type, -1L);
+        for(int i = start; i < end; i++) {
+            scores[i] = heuristic.score(position, moves[i]);
+        }
+    }
+
+    /**
+     * Swaps best scored remaining move with the move on {@link MovePicker#current} index and returns it. Of equally scored moves the earlier is chosen.
+     */
+    private int pickBest() {
+        int best = current;
+        for(int i = current + 1; i < end; i++) {
+            if(scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        int score = scores[best];
+        moves[best] = moves[current];
+        scores[best] = scores[current];
+        moves[current] = move;
+        scores[current] = score;
+        current++;
+        return move;
+    }
+
+    /**
+     * Checks whether given move is one of first count killer moves.
+     */
+    private boolean isKiller(int move, int count) {
+        for(int i = 0; i < count; i++) {
+            if(killers[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns legal move of current position with the same from and to squares and promotion as given move ({@link PackedMove#isSameMove}),
+     * or {@link PackedMove#NONE} if there is no such move. Only legal moves of the piece on move's from square are generated.
+     */
+    private int legalMove(int move) {
+        if(move == PackedMove.NONE || (position.getOccupancy(color) & Bitboards.bit(PackedMove.from(move))) == 0) {
+            return PackedMove.NONE;
+        }
+        int count = MoveGenerator.generate(position, color, moves, end, MoveGenerator.ALL, Bitboards.bit(PackedMove.from(move)));
+        for(int i = end; i < count; i++) {
+            if(PackedMove.isSameMove(moves[i], move)) {
+                return moves[i];
+            }
+        }
+        return PackedMove.NONE;
+    }
+}
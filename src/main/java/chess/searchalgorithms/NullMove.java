@@ -0,0 +1,38 @@
+package chess.searchalgorithms;
+
+import chess.game.Position;
+import chess.util.Bitboards;
+import chess.util.Color;
+
+/**
+ * Rules of null move pruning shared by the searches. In a node where side to move is far ahead, it passes the turn ({@link Position#makeNullMove()})
+ * and the opponent is searched to reduced depth. If side to move is still above beta without moving, real moves would be even better, so the node is
+ * cut off without searching them. This assumption fails in zugzwang, where every move makes the position worse, so null move is not tried when
+ * zugzwang is likely. Optional verification search to reduced depth confirms the cutoff with real moves.
+ */
+public final class NullMove {
+
+    /**
+     * Depth from which reduction {@link NullMove#reduction} is 3 instead of 2.
+     */
+    private static final int DEEP = 7;
+
+    private NullMove() {
+    }
+
+    /**
+     * Checks whether null move may be tried for given side to move. It is not allowed when in check, and in pawn endgames and endgames with
+     * a single piece, where zugzwang is common.
+     */
+    public static boolean isAllowed(Position position, Color color) {
+        long pieces = position.getOccupancy(color) & ~position.getPieces(color, Bitboards.PAWN) & ~position.getPieces(color, Bitboards.KING);
+        return Long.bitCount(pieces) >= 2 && !position.isInCheck(color);
+    }
+
+    /**
+     * Returns by how many plies search after null move is reduced, in addition to the ply of the null move. Reduction is bigger in deeper nodes.
+     */
+    public static int reduction(int depth) {
+        return depth >= DEEP ? 3 : 2;
+    }
+}
@@ -0,0 +1,133 @@
+package chess.searchalgorithms;
+
+import chess.game.Position;
+import chess.searchalgorithms.evaluators.Evaluator;
+import chess.searchalgorithms.heuristics.Heuristic;
+import chess.util.Bitboards;
+import chess.util.ChessUtil;
+import chess.util.Color;
+import chess.util.PackedMove;
+
+/**
+ * Quiescence search, used by {@link SearchAlgorithm}s instead of evaluating positions on the horizon. Only captures and promotions are searched
+ * until the position is quiet, so the evaluator is never asked to score a position in the middle of an exchange. Side to move may always
+ * stand pat, i.e. keep the evaluation of the position instead of capturing. When side to move is in check, all evasions are searched instead,
+ * so mates on the horizon are still found.
+ * <p>
+ * Captures which can't raise the score to alpha even if the captured piece is won for free are skipped (delta pruning), piece values
+ * come from {@link Evaluator#pieceValue}. Scores are from the side to move and the evaluator is expected to score positions for the computer,
+ * as in {@link IterativeDeepening}. One instance is used by one thread at a time.
+ */
+public class Quiescence {
+
+    /**
+     * Margin of delta pruning in pawns, covers positional gain of the capture.
+     */
+    private static final int DELTA_MARGIN = 2;
+
+    private final Heuristic heuristic;
+    private final Evaluator evaluator;
+    private final MovePicker[] pickers = new MovePicker[ChessUtil.MAX_DEPTH + 1];
+    private final int[] noKillers = new int[0];
+
+    private Position position;
+    private Color computer;
+    private long nodes;
+
+    public Quiescence(Heuristic heuristic, Evaluator evaluator) {
+        this.heuristic = heuristic;
+        this.evaluator = evaluator;
+        for(int i = 0; i < pickers.length; i++) {
+            pickers[i] = new MovePicker();
+        }
+    }
+
+    /**
+     * Prepares quiescence search for a new search.
+     * @param position position that is searched, moves are made and unmade on it
+     * @param computer color for which the evaluator scores positions
+     */
+    public void init(Position position, Color computer) {
+        this.position = position;
+        this.computer = computer;
+        nodes = 0;
+    }
+
+    /**
+     * Searches captures of current position, returns score from the point of view of given color. Score may be outside of the window.
+     * @param color side to move
+     * @param ply distance from the root, used for mate scores
+     */
+    public double search(Color color, double alpha, double beta, int ply) {
+        nodes++;
+        boolean inCheck = position.isInCheck(color);
+        double standPat = Double.NEGATIVE_INFINITY;
+        if(!inCheck || ply >= ChessUtil.MAX_DEPTH) {
+            standPat = evaluate(color);
+            if(standPat >= beta || ply >= ChessUtil.MAX_DEPTH) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
+        }
+        Color opponent = color == Color.WHITE ? Color.BLACK : Color.WHITE;
+        MovePicker picker = pickers[ply];
+        if(inCheck) {
+            picker.init(position, color, heuristic, PackedMove.NONE, noKillers);
+        } else {
+            picker.initCaptures(position, color, heuristic);
+        }
+        double best = standPat;
+        boolean hasMoves = false;
+        for(int move = picker.next(); move != PackedMove.NONE; move = picker.next()) {
+            hasMoves = true;
+            if(!inCheck && standPat + gain(move) + evaluator.pieceValue(position, Bitboards.PAWN) * DELTA_MARGIN <= alpha) {
+                continue;
+            }
+            position.makeMove(move);
+            double score = -search(opponent, -beta, -alpha, ply + 1);
+            position.unmakeMove();
+            if(score > best) {
+                best = score;
+                if(score > alpha) {
+                    alpha = score;
+                    if(score >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        if(inCheck && !hasMoves) {
+            return -(ChessUtil.MATE_SCORE - ply);
+        }
+        return best;
+    }
+
+    /**
+     * Returns material won by given move.
+     */
+    private double gain(int move) {
+        double gain = 0;
+        if(PackedMove.isCapture(move)) {
+            gain += evaluator.pieceValue(position, Bitboards.typeOf(PackedMove.captured(move)));
+        }
+        if(PackedMove.isPromotion(move)) {
+            gain += evaluator.pieceValue(position, Bitboards.typeOf(PackedMove.promotion(move))) - evaluator.pieceValue(position, Bitboards.PAWN);
+        }
+        return gain;
+    }
+
+    /**
+     * Returns evaluation from the point of view of given color.
+     */
+    private double evaluate(Color color) {
+        double value = evaluator.evaluate(position);
+        return color == computer ? value : -value;
+    }
+
+    /**
+     * Returns number of nodes searched since {@link Quiescence#init}.
+     */
+    public long getNodes() {
+        return nodes;
+    }
+}
@@ -1,6 +1,8 @@
 package chess.searchalgorithms;
 
 import chess.game.Position;
+import chess.searchalgorithms.evaluators.Evaluator;
+import chess.searchalgorithms.heuristics.Heuristic;
 import chess.util.Color;
 import chess.util.Move;
 
@@ -15,7 +17,41 @@ public interface SearchAlgorithm {
 
     /**
      * For given position method calculates and returns best move to play.
-     * @return best move
+     * @return best move or null if computer has no legal moves
      */
     Move findBestMove(Position position, Color computer);
+
+    /**
+     * Returns search algorithm with given name:
+     * <ul>
+     *     <li>alphabeta - {@link AlphaBeta2}</li>
+     *     <li>pvs - {@link AlphaBeta2} with principal variation search</li>
+     *     <li>parallel - {@link AlphaBetaParallel}</li>
+     *     <li>iterative - {@link IterativeDeepening} limited by time, system property chess.searchTime in milliseconds
+     *     ({@link IterativeDeepening#DEFAULT_TIME_LIMIT} by default)</li>
+     * </ul>
+     * All of them use {@link TranspositionTable#getDefault()}.
+     * @throws IllegalArgumentException if there is no algorithm with given name
+     */
+    static SearchAlgorithm forName(String name, Heuristic heuristic, Evaluator evaluator) {
+        switch(name) {
+            case "alphabeta":
+                return new AlphaBeta2(heuristic, evaluator);
+            case "pvs":
+                return new AlphaBeta2(heuristic, evaluator, TranspositionTable.getDefault(), true);
+            case "parallel":
+                return new AlphaBetaParallel(heuristic, evaluator);
+            case "iterative":
+                return new IterativeDeepening(heuristic, evaluator, Long.getLong("chess.searchTime", IterativeDeepening.DEFAULT_TIME_LIMIT));
+            default:
+                throw new IllegalArgumentException("Unknown search algorithm: " + name);
+        }
+    }
+
+    /**
+     * Returns search algorithm named by system property chess.search (see {@link SearchAlgorithm#forName}), parallel by default.
+     */
+    static SearchAlgorithm getDefault(Heuristic heuristic, Evaluator evaluator) {
+        return forName(System.getProperty("chess.search", "parallel"), heuristic, evaluator);
+    }
 }
@@ -0,0 +1,591 @@
+package chess.searchalgorithms;
+
+import chess.searchalgorithms.evaluators.Evaluator;
+import chess.util.ChessUtil;
+import chess.util.PackedMove;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Transposition table keeps results of searched positions, keyed by {@link chess.game.Position#getKey()}, so positions reached again through
+ * other move orders aren't searched from scratch and best moves found earlier are searched first. Table can be shared by any number of threads
+ * without locks: every entry is two longs, key xor data and data, and entry whose longs were written by different threads doesn't pass the key check.
+ * <p>
+ * Entries are grouped in buckets of four, so a bucket takes one 64 byte cache line. Entry of the same position is always replaced, otherwise
+ * the least valuable entry of the bucket is: empty entry, then entries of earlier searches ({@link TranspositionTable#newSearch}), then
+ * the one with the smallest depth. Data of an entry is:
+ * <ul>
+ *     <li>0-15 - best move ({@link PackedMove#toShort})</li>
+ *     <li>16-23 - depth</li>
+ *     <li>24-25 - bound ({@link TranspositionTable#EXACT}, {@link TranspositionTable#LOWER}, {@link TranspositionTable#UPPER})</li>
+ *     <li>26-31 - age</li>
+ *     <li>32-63 - score as float</li>
+ * </ul>
+ * Scores are from the point of view of the side to move, and mate scores are stored relative to the position instead of the root.
+ * Score that isn't exactly representable as float is rounded so that the stored bound still holds: lower bounds down, upper bounds up, and
+ * exact score is rounded down and stored as lower bound.
+ * Searches with different evaluators shouldn't share a table, and the table is cleared when evaluation phase of the searches changes.
+ * <p>
+ * Table is kept on the heap ({@link TranspositionTable#TranspositionTable(int)}), off the heap in direct buffers ({@link TranspositionTable#offHeap})
+ * or in a memory-mapped file ({@link TranspositionTable#mapped}). Large tables should be off the heap, so they don't need bigger {@code -Xmx} and
+ * garbage collector doesn't have to deal with them. Direct buffers are limited by {@code -XX:MaxDirectMemorySize}, mapped files only by the disk.
+ * Table can be cleared and resized between searches, but not while it's being searched.
+ */
+public class TranspositionTable {
+
+    /**
+     * Score is exact value of the position.
+     */
+    public static final int EXACT = 1;
+
+    /**
+     * Value of the position is at least the score (search failed high).
+     */
+    public static final int LOWER = 2;
+
+    /**
+     * Value of the position is at most the score (search failed low).
+     */
+    public static final int UPPER = 3;
+
+    /**
+     * Default size in megabytes, can be changed with {@code -Dchess.hash=megabytes}.
+     */
+    public static final int DEFAULT_SIZE = 16;
+
+    /**
+     * Size of a bucket in bytes, same as size of a cache line.
+     */
+    private static final int BUCKET_BYTES = 64;
+
+    /**
+     * Number of longs in a bucket, two for every entry.
+     */
+    private static final int BUCKET_LONGS = BUCKET_BYTES / Long.BYTES;
+
+    /**
+     * Scores with greater absolute value are mate scores.
+     */
+    private static final double MATE_BOUND = ChessUtil.MATE_SCORE - ChessUtil.MAX_DEPTH * 2;
+
+    /**
+     * Memory of the table, {@link TranspositionTable#BUCKET_LONGS} longs for every bucket.
+     */
+    private Storage storage;
+
+    /**
+     * Mask of the bucket index.
+     */
+    private long mask;
+
+    private int age;
+
+    /**
+     * Evaluation phase of the last search ({@link Evaluator#phase}).
+     */
+    private int phase;
+
+    /**
+     * Creates table on the heap.
+     * @param megabytes size of the table in megabytes, rounded down to power of 2 buckets
+     */
+    public TranspositionTable(int megabytes) {
+        this(new HeapStorage(buckets(megabytes, HeapStorage.MAX_BUCKETS) * BUCKET_LONGS));
+    }
+
+    private TranspositionTable(Storage storage) {
+        setStorage(storage);
+    }
+
+    /**
+     * Creates table in direct buffers outside of the heap.
+     * @param megabytes size of the table in megabytes, rounded down to power of 2 buckets
+     */
+    public static TranspositionTable offHeap(long megabytes) {
+        return new TranspositionTable(BufferStorage.direct(buckets(megabytes, Long.MAX_VALUE) * BUCKET_LONGS));
+    }
+
+    /**
+     * Creates table in given file mapped to memory. File is created if it doesn't exist and emptied if it does, because entries of earlier runs
+     * may have been scored differently, the evaluation depends on the move number. File is locked while the table exists, so it can't be
+     * used by another table of this or any other process.
+     * @param megabytes size of the table in megabytes, rounded down to power of 2 buckets
+     * @throws UncheckedIOException if file can't be mapped
+     * @throws IllegalStateException if file is already used by another table
+     */
+    public static TranspositionTable mapped(Path file, long megabytes) {
+        return new TranspositionTable(BufferStorage.mapped(file, buckets(megabytes, Long.MAX_VALUE) * BUCKET_LONGS));
+    }
+
+    /**
+     * Returns table shared by search algorithms that aren't given their own table. Table is created on first use with system properties
+     * {@code chess.hash} (size in megabytes, {@link TranspositionTable#DEFAULT_SIZE} by default), {@code chess.hashFile} (file for
+     * {@link TranspositionTable#mapped}) and {@code chess.hashOffHeap} ({@link TranspositionTable#offHeap} if true).
+     */
+    public static TranspositionTable getDefault() {
+        return DefaultHolder.TABLE;
+    }
+
+    /**
+     * Holder of the default table, created on first use.
+     */
+    private static class DefaultHolder {
+        private static final TranspositionTable TABLE = create();
+
+        private static TranspositionTable create() {
+            long megabytes = Long.getLong("chess.hash", DEFAULT_SIZE);
+            String file = System.getProperty("chess.hashFile");
+            if(file != null) {
+                return mapped(Paths.get(file), megabytes);
+            }
+            if(Boolean.getBoolean("chess.hashOffHeap")) {
+                return offHeap(megabytes);
+            }
+            return new TranspositionTable((int) Math.min(megabytes, Integer.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Returns number of buckets of a table of given size, power of 2.
+     */
+    private static long buckets(long megabytes, long max) {
+        long buckets = Long.highestOneBit(Math.max(1, megabytes << 20) / BUCKET_BYTES);
+        return Math.min(Math.max(buckets, 1), max);
+    }
+
+    private void setStorage(Storage storage) {
+        this.storage = storage;
+        mask = storage.length() / BUCKET_LONGS - 1;
+    }
+
+    /**
+     * Changes size of the table, all entries are lost. Table stays on the heap, off the heap or in the same file.
+     * Must not be called while the table is being searched.
+     * @param megabytes new size in megabytes, rounded down to power of 2 buckets
+     */
+    public void resize(long megabytes) {
+        setStorage(storage.resize(buckets(megabytes, storage.maxLength() / BUCKET_LONGS) * BUCKET_LONGS));
+        clear();
+    }
+
+    /**
+     * Marks start of a new search. Entries of earlier searches are replaced first. When the evaluation phase differs from the last search,
+     * all entries are removed, because their scores are on the scale of the other phase.
+     * @param phase evaluation phase of the search ({@link Evaluator#phase})
+     */
+    public void newSearch(int phase) {
+        age = (age + 1) & 0x3F;
+        if(phase != this.phase) {
+            this.phase = phase;
+            clear();
+        }
+    }
+
+    /**
+     * Removes all entries, for example on a new game. Must not be called while the table is being searched.
+     */
+    public void clear() {
+        storage.clear();
+    }
+
+    /**
+     * Returns number of entries.
+     */
+    public long size() {
+        return storage.length() / 2;
+    }
+
+    /**
+     * Looks up position with given key.
+     * @return data of the entry or 0 if the position is not in the table
+     */
+    public long probe(long key) {
+        long bucket = (key & mask) * BUCKET_LONGS;
+        for(long i = bucket; i < bucket + BUCKET_LONGS; i += 2) {
+            long data = storage.get(i + 1);
+            if((storage.get(i) ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Stores result of a search. If there is no best move, best move of the same position already in the table is kept.
+     * @param move best move or {@link PackedMove#NONE}
+     * @param bound {@link TranspositionTable#EXACT}, {@link TranspositionTable#LOWER} or {@link TranspositionTable#UPPER}
+     * @param score score from the point of view of the side to move
+     * @param ply distance of the position from the root, used for storing mate scores
+     */
+    public void store(long key, int move, int depth, int bound, double score, int ply) {
+        long bucket = (key & mask) * BUCKET_LONGS;
+        long i = bucket;
+        int worst = Integer.MAX_VALUE;
+        for(long j = bucket; j < bucket + BUCKET_LONGS; j += 2) {
+            long data = storage.get(j + 1);
+            if((storage.get(j) ^ data) == key) {
+                i = j;
+                break;
+            }
+            int value = data == 0 ? -1 : age(data) == age ? depth(data) + 256 : depth(data);
+            if(value < worst) {
+                worst = value;
+                i = j;
+            }
+        }
+        long old = storage.get(i + 1);
+        if(move == PackedMove.NONE && (storage.get(i) ^ old) == key) {
+            move = move(old);
+        }
+        double tableScore = scoreToTable(score, ply);
+        float value = (float) tableScore;
+        if(value != tableScore) {
+            if(bound == UPPER) {
+                value = value < tableScore ? Math.nextUp(value) : value;
+            } else {
+                bound = LOWER;
+                value = value > tableScore ? Math.nextDown(value) : value;
+            }
+        }
+        long data = PackedMove.toShort(move) | (long) Math.min(depth, 0xFF) << 16 | (long) bound << 24 | (long) age << 26
+                | (long) Float.floatToRawIntBits(value) << 32;
+        storage.set(i, key ^ data);
+        storage.set(i + 1, data);
+    }
+
+    /**
+     * Returns best move of entry data. Move has only from and to squares and promotion ({@link PackedMove#fromShort}), or is {@link PackedMove#NONE}.
+     */
+    public static int move(long data) {
+        return PackedMove.fromShort((int) data & 0xFFFF);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 16) & 0xFF;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 24) & 3;
+    }
+
+    private static int age(long data) {
+        return (int) (data >>> 26) & 0x3F;
+    }
+
+    /**
+     * Returns score of entry data for position on given ply.
+     */
+    public static double score(long data, int ply) {
+        return scoreFromTable(Float.intBitsToFloat((int) (data >>> 32)), ply);
+    }
+
+    /**
+     * Returns score of entry data if it can be used as result of a node searched to given depth with window (alpha, beta), or NaN if it can't.
+     * All scores are from the point of view of the side to move.
+     */
+    public static double cutoffScore(long data, int depth, int ply, double alpha, double beta) {
+        if(data == 0 || depth(data) < depth) {
+            return Double.NaN;
+        }
+        double score = score(data, ply);
+        int bound = bound(data);
+        if(bound == EXACT || (bound == LOWER && score >= beta) || (bound == UPPER && score <= alpha)) {
+            return score;
+        }
+        return Double.NaN;
+    }
+
+    /**
+     * Returns bound of given search result.
+     * @param alpha alpha before the search of the node
+     */
+    public static int bound(double score, double alpha, double beta) {
+        return score <= alpha ? UPPER : score >= beta ? LOWER : EXACT;
+    }
+
+    /**
+     * Changes mate score counted from the root to mate score counted from position on given ply.
+     */
+    private static double scoreToTable(double score, int ply) {
+        if(score > MATE_BOUND) {
+            return score + ply;
+        }
+        if(score < -MATE_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * Changes mate score counted from position on given ply to mate score counted from the root.
+     */
+    private static double scoreFromTable(double score, int ply) {
+        if(score > MATE_BOUND) {
+            return score - ply;
+        }
+        if(score < -MATE_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Memory of the table.
+     */
+    private interface Storage {
+
+        long get(long index);
+
+        void set(long index, long value);
+
+        /**
+         * Returns number of longs.
+         */
+        long length();
+
+        /**
+         * Returns maximum number of longs.
+         */
+        long maxLength();
+
+        void clear();
+
+        /**
+         * Returns storage of the same kind with given number of longs.
+         */
+        Storage resize(long length);
+    }
+
+    /**
+     * Array of longs on the heap.
+     */
+    private static class HeapStorage implements Storage {
+
+        /**
+         * Maximum number of buckets, limited by maximum array length.
+         */
+        private static final long MAX_BUCKETS = 1 << 27;
+
+        private final long[] table;
+
+        private HeapStorage(long length) {
+            table = new long[(int) length];
+        }
+
+        @Override
+        public long get(long index) {
+            return table[(int) index];
+        }
+
+        @Override
+        public void set(long index, long value) {
+            table[(int) index] = value;
+        }
+
+        @Override
+        public long length() {
+            return table.length;
+        }
+
+        @Override
+        public long maxLength() {
+            return MAX_BUCKETS * BUCKET_LONGS;
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(table, 0);
+        }
+
+        @Override
+        public Storage resize(long length) {
+            return new HeapStorage(length);
+        }
+    }
+
+    /**
+     * Direct or memory-mapped buffers outside of the heap. Buffer can't be larger than 2 GB, so the table is split into segments of 1 GB.
+     */
+    private static class BufferStorage implements Storage {
+
+        /**
+         * Number of longs in a segment is 2^SEGMENT_SHIFT.
+         */
+        private static final int SEGMENT_SHIFT = 27;
+        private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+        /**
+         * Number of longs cleared at once by {@link BufferStorage#clear()}.
+         */
+        private static final int CLEAR_CHUNK = 1 << 16;
+
+        private final LongBuffer[] segments;
+        private final long length;
+
+        /**
+         * Channel of the mapped file or null for direct buffers. It stays open, so the file stays locked.
+         */
+        private final FileChannel channel;
+
+        private BufferStorage(long length, FileChannel channel) {
+            this.length = length;
+            this.channel = channel;
+            segments = new LongBuffer[(int) ((length + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+        }
+
+        private static BufferStorage direct(long length) {
+            BufferStorage storage = new BufferStorage(length, null);
+            for(int i = 0; i < storage.segments.length; i++) {
+                int bytes = (int) (storage.segmentLength(i) * Long.BYTES);
+                ByteBuffer buffer = alignToCacheLine(ByteBuffer.allocateDirect(bytes + BUCKET_BYTES), bytes);
+                storage.segments[i] = buffer.order(ByteOrder.nativeOrder()).asLongBuffer();
+            }
+            return storage;
+        }
+
+        /**
+         * Locks given file and maps it emptied. Entries are removed by truncating the file, so it doesn't have to be written. Truncating is
+         * safe only because the lock guarantees that no other table has the file mapped.
+         */
+        private static BufferStorage mapped(Path file, long length) {
+            FileChannel channel = null;
+            try {
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                FileLock lock;
+                try {
+                    lock = channel.tryLock();
+                } catch (OverlappingFileLockException e) {
+                    lock = null;
+                }
+                if(lock == null) {
+                    throw new IllegalStateException("File " + file + " is already used by another transposition table");
+                }
+                channel.truncate(0);
+                return mapped(channel, length);
+            } catch (IOException | RuntimeException e) {
+                closeQuietly(channel);
+                if(e instanceof IOException) {
+                    throw new UncheckedIOException((IOException) e);
+                }
+                throw (RuntimeException) e;
+            }
+        }
+
+        /**
+         * Maps given number of longs of the file, which is extended if it's shorter. Mapped regions start on page boundaries.
+         */
+        private static BufferStorage mapped(FileChannel channel, long length) throws IOException {
+            BufferStorage storage = new BufferStorage(length, channel);
+            for(int i = 0; i < storage.segments.length; i++) {
+                long position = ((long) i << SEGMENT_SHIFT) * Long.BYTES;
+                long bytes = storage.segmentLength(i) * Long.BYTES;
+                storage.segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, bytes).order(ByteOrder.nativeOrder()).asLongBuffer();
+            }
+            return storage;
+        }
+
+        private static void closeQuietly(FileChannel channel) {
+            if(channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // the original exception is more important
+                }
+            }
+        }
+
+        /**
+         * Returns part of given direct buffer that starts on a cache line and has given size. Buffers are aligned with
+         * {@code ByteBuffer.alignedSlice}, which is available from Java 9. On Java 8 buffer is used as it is.
+         */
+        private static ByteBuffer alignToCacheLine(ByteBuffer buffer, int bytes) {
+            try {
+                Method alignedSlice = ByteBuffer.class.getMethod("alignedSlice", int.class);
+                buffer = (ByteBuffer) alignedSlice.invoke(buffer, BUCKET_BYTES);
+            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+                // Java 8, buffer is not aligned to cache lines
+            }
+            buffer.limit(bytes);
+            return buffer.slice();
+        }
+
+        private long segmentLength(int segment) {
+            return Math.min(length - ((long) segment << SEGMENT_SHIFT), 1L << SEGMENT_SHIFT);
+        }
+
+        @Override
+        public long get(long index) {
+            return segments[(int) (index >>> SEGMENT_SHIFT)].get((int) (index & SEGMENT_MASK));
+        }
+
+        @Override
+        public void set(long index, long value) {
+            segments[(int) (index >>> SEGMENT_SHIFT)].put((int) (index & SEGMENT_MASK), value);
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public long maxLength() {
+            return Long.MAX_VALUE / Long.BYTES;
+        }
+
+        @Override
+        public void clear() {
+            // buffers are cast to Buffer, whose methods return LongBuffer only from Java 9
+            LongBuffer zeros = LongBuffer.allocate(CLEAR_CHUNK);
+            for(LongBuffer segment : segments) {
+                LongBuffer target = segment.duplicate();
+                ((Buffer) target).clear();
+                while(target.hasRemaining()) {
+                    ((Buffer) zeros).clear();
+                    ((Buffer) zeros).limit(Math.min(CLEAR_CHUNK, target.remaining()));
+                    target.put(zeros);
+                }
+            }
+        }
+
+        @Override
+        public Storage resize(long length) {
+            if(channel == null) {
+                return direct(length);
+            }
+            try {
+                BufferStorage storage = mapped(channel, length);
+                shrink(length * Long.BYTES);
+                return storage;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Shrinks the file to given size after it was mapped smaller. Old mapping beyond the new size must not be used anymore. Some systems
+         * don't allow truncating a file while the old mapping exists, the file stays larger there.
+         */
+        private void shrink(long bytes) {
+            try {
+                channel.truncate(bytes);
+            } catch (IOException e) {
+                // file is larger than needed, which does no harm
+            }
+        }
+    }
+}
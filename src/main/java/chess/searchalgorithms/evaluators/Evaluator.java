@@ -1,6 +1,7 @@
 package chess.searchalgorithms.evaluators;
 
 import chess.game.Position;
+import chess.util.Bitboards;
 
 /**
  * Interface defines behaviour of chess position evaluator.
@@ -16,4 +17,25 @@ public interface Evaluator {
      * @return fitness of position
      */
     double evaluate(Position position);
+
+    /**
+     * Returns value of piece of given type ({@link Bitboards#PAWN} to {@link Bitboards#KING}) on the scale of {@link Evaluator#evaluate}.
+     * It is used by search for estimating gain of captures, default scale is 100 per pawn.
+     * @param position position in which piece is valued
+     * @param type piece type
+     * @return value of the piece
+     */
+    default double pieceValue(Position position, int type) {
+        return Bitboards.VALUES[type] * 100;
+    }
+
+    /**
+     * Returns phase of the evaluation. Positions are scored the same way while the phase stays the same, scores of different phases
+     * can't be compared, so stored search results of other phases must not be used. Default evaluator has only one phase.
+     * @param position position which is going to be searched
+     * @return phase of the evaluation
+     */
+    default int phase(Position position) {
+        return 0;
+    }
 }
@@ -2,10 +2,7 @@ package chess.searchalgorithms.evaluators;
 
 import chess.game.Position;
 import chess.pieces.Figure;
-import chess.pieces.King;
-import chess.pieces.Pawn;
-import chess.pieces.Queen;
-import chess.pieces.Rook;
+import chess.util.Bitboards;
 import chess.util.ChessUtil;
 import chess.util.Color;
 
@@ -16,12 +13,27 @@ import chess.util.Color;
  */
 public class SimplePositionEvaluator implements Evaluator {
 
+    /**
+     * Central squares on which pawns are rewarded in opening.
+     */
+    private static final long CENTER = Bitboards.bit(Bitboards.square(4, 4)) | Bitboards.bit(Bitboards.square(4, 5));
+
+    /**
+     * Phase of the opening, up to move 8.
+     */
+    private static final int OPENING = 0;
+
+    /**
+     * Phase of the middlegame, after move 8.
+     */
+    private static final int MIDDLEGAME = 1;
+
     @Override
     public double evaluate(Position position) {
         Color comp = position.getPlayerWhite() ? Color.BLACK : Color.WHITE;
         Color player = position.getPlayerWhite() ? Color.WHITE : Color.BLACK;
         double result = 0;
-        if(ChessUtil.moveNumber <= 8) {
+        if(phase(position) == OPENING) {
             result += evaluateOpening(position, comp);
         } else {
             result += evaluatePositionalMiddleGame(position, comp);
@@ -30,85 +42,76 @@ public class SimplePositionEvaluator implements Evaluator {
     }
 
 
+    /**
+     * Material is worth 150 per pawn in opening and 100 in middlegame.
+     */
+    @Override
+    public double pieceValue(Position position, int type) {
+        return Bitboards.VALUES[type] * (phase(position) == OPENING ? 150 : 100);
+    }
+
+    /**
+     * Opening and middlegame are evaluated with different parameters and material scale.
+     */
+    @Override
+    public int phase(Position position) {
+        return ChessUtil.moveNumber <= 8 ? OPENING : MIDDLEGAME;
+    }
+
     /**
      * Evaluates opening, priority is to develop minor pieces (Bihsop and Knight), castle, and secure center with central pawns.
      */
     private double evaluateOpening(Position position, Color color) {
-        int comp = 0;
-        int player = 0;
-        Figure[][] figures = position.getPosition();
-        double result = 0;
-        for(int i = 0; i < 8; i++) {
-            for(int j = 0; j < 8; j++) {
-                Figure figure = figures[i][j];
-                if(figure != null) {
-                    if(figure.getColor() == color) {
-                        comp += figure.getValue() * 150;
-                        if(figure instanceof King) {
-                            result += ((King) figure).isCastled() ? 50 : 0;
-                            continue;
-                        }
-                        if(figure instanceof Pawn && (i == 4 && (j == 4 || j == 5))) {
-                            result += 10;
-                            continue;
-                        }
-                        if(!(figure instanceof Queen) && !(figure instanceof Pawn) && !(figure instanceof Rook)) {
-                            result += figure.attacking(position).size() * 5;
-                        }
-                    } else {
-                        player += figure.getValue() * 150;
-                        if(figure instanceof King) {
-                            result -= ((King) figure).isCastled() ? 50 : 0;
-                            continue;
-                        }
-                        if(figure instanceof Pawn && (i == 4 && (j == 4 || j == 5))) {
-                            result -= 10;
-                            continue;
-                        }
-                        if(!(figure instanceof Pawn) && !(figure instanceof Queen) && !(figure instanceof Rook)) {
-                            result -= figure.attacking(position).size() * 5;
-                        }
-                    }
-                }
-            }
-        }
-        return result + comp - player;
+        Color opponent = color == Color.WHITE ? Color.BLACK : Color.WHITE;
+        double result = material(position, color) * 150 - material(position, opponent) * 150;
+        result += position.isCastled(color) ? 50 : 0;
+        result -= position.isCastled(opponent) ? 50 : 0;
+        result += Long.bitCount(position.getPieces(color, Bitboards.PAWN) & CENTER) * 10;
+        result -= Long.bitCount(position.getPieces(opponent, Bitboards.PAWN) & CENTER) * 10;
+        long minorPieces = position.getPieces(color, Bitboards.KNIGHT) | position.getPieces(color, Bitboards.BISHOP);
+        long opponentMinorPieces = position.getPieces(opponent, Bitboards.KNIGHT) | position.getPieces(opponent, Bitboards.BISHOP);
+        result += mobility(position, minorPieces, color) * 5;
+        result -= mobility(position, opponentMinorPieces, opponent) * 5;
+        return result;
     }
 
     /**
      * Evaluates middle game. Figure placement is more important as is king's safety (castling).
      */
     private double evaluatePositionalMiddleGame(Position position, Color color) {
-        int comp = 0;
-        int player = 0;
-        Figure[][] figures = position.getPosition();
-        double result = 0;
-        for(int i = 0; i < 8; i++) {
-            for(int j = 0; j < 8; j++) {
-                Figure figure = figures[i][j];
-                if(figure != null) {
-                    if(figure.getColor() == color) {
-                        comp += figure.getValue() * 100;
-                        if(figure instanceof King) {
-                            result += ((King) figure).isCastled() ? 100 : 0;
-                            continue;
-                        }
-                        if(!(figure instanceof Pawn)) {
-                            result += figure.attacking(position).size() * 10;
-                        }
-                    } else {
-                        player += figure.getValue() * 100;
-                        if(figure instanceof King) {
-                            result -= ((King) figure).isCastled() ? 100 : 0;
-                            continue;
-                        }
-                        if(!(figure instanceof Pawn)) {
-                            result -= figure.attacking(position).size() * 10;
-                        }
-                    }
-                }
-            }
+        Color opponent = color == Color.WHITE ? Color.BLACK : Color.WHITE;
+        double result = material(position, color) * 100 - material(position, opponent) * 100;
+        result += position.isCastled(color) ? 100 : 0;
+        result -= position.isCastled(opponent) ? 100 : 0;
+        long pieces = position.getOccupancy(color) & ~position.getPieces(color, Bitboards.PAWN) & ~position.getPieces(color, Bitboards.KING);
+        long opponentPieces = position.getOccupancy(opponent) & ~position.getPieces(opponent, Bitboards.PAWN) & ~position.getPieces(opponent, Bitboards.KING);
+        result += mobility(position, pieces, color) * 10;
+        result -= mobility(position, opponentPieces, opponent) * 10;
+        return result;
+    }
+
+    /**
+     * Returns sum of values of all pieces of given color.
+     */
+    private static int material(Position position, Color color) {
+        int material = 0;
+        for(int type = Bitboards.PAWN; type <= Bitboards.KING; type++) {
+            material += Long.bitCount(position.getPieces(color, type)) * Bitboards.VALUES[type];
+        }
+        return material;
+    }
+
+    /**
+     * Returns number of squares given pieces are attacking, same as sum of {@link Figure#attacking} sizes.
+     */
+    private static int mobility(Position position, long pieces, Color color) {
+        int mobility = 0;
+        long own = position.getOccupancy(color);
+        while(pieces != 0) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            mobility += Long.bitCount(position.attacksFrom(square) & ~own);
+            pieces &= pieces - 1;
         }
-        return  result + comp - player;
+        return mobility;
     }
 }
@@ -2,8 +2,10 @@ package chess.searchalgorithms.heuristics;
 
 import chess.game.Position;
 import chess.pieces.Figure;
+import chess.util.Bitboards;
 import chess.util.Coordinate;
 import chess.util.Move;
+import chess.util.PackedMove;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -33,4 +35,16 @@ public class CheckTakingHeuristic implements Heuristic {
         }
         return moves;
     }
+
+    @Override
+    public int score(Position position, int move) {
+        return capturedValue(move);
+    }
+
+    /**
+     * Returns value of the piece captured with given move, 0 if nothing is captured.
+     */
+    private static int capturedValue(int move) {
+        return PackedMove.isCapture(move) ? Bitboards.VALUES[Bitboards.typeOf(PackedMove.captured(move))] : 0;
+    }
 }
@@ -20,4 +20,9 @@ public class DoNothingHeuristic implements Heuristic {
         }
         return moves;
     }
+
+    @Override
+    public int score(Position position, int move) {
+        return 0;
+    }
 }
@@ -21,4 +21,28 @@ public interface Heuristic {
      * @return sorted map of {@link Move}.
      */
     List<Move> sortByHeuristic(Position position, List<Figure> figures);
+
+    /**
+     * Method scores generated {@link chess.util.PackedMove} using heuristic function. Moves with higher score are searched first,
+     * see {@link chess.searchalgorithms.MovePicker}.
+     * @param position current position
+     * @param move move generated for current position
+     * @return score of the move
+     */
+    int score(Position position, int move);
+
+    /**
+     * Method is called by search before it starts, heuristics that learn during the search forget what they learned here.
+     */
+    default void newSearch() {
+    }
+
+    /**
+     * Method is called by search when given move caused beta cutoff, so heuristics can score similar moves higher.
+     * @param position position in which the move was made, the move is already undone
+     * @param move move that caused the cutoff
+     * @param depth remaining depth of the node
+     */
+    default void cutoff(Position position, int move, int depth) {
+    }
 }
@@ -0,0 +1,103 @@
+package chess.searchalgorithms.heuristics;
+
+import chess.game.Position;
+import chess.pieces.Figure;
+import chess.util.Move;
+import chess.util.PackedMove;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * HistoryHeuristic learns from cutoffs of the current search. Quiet moves are scored by butterfly history, i.e. how often and how deep a move
+ * of the same piece to the same square caused cutoff, and the countermove, the quiet move that last refuted the opponent's previous move, gets
+ * a bonus. Captures and promotions are scored by another heuristic, by default {@link MvvLvaHeuristic}. Killer moves are kept by the searches
+ * themselves, see {@link chess.searchalgorithms.MovePicker}.
+ * <p>
+ * Tables are cleared when a new search starts ({@link Heuristic#newSearch()}). When searched in parallel, updates of different threads may get lost,
+ * which only changes the order of moves.
+ */
+public class HistoryHeuristic implements Heuristic {
+
+    /**
+     * Score bonus of the countermove, bigger than most history scores.
+     */
+    private static final int COUNTERMOVE_BONUS = 1 << 16;
+
+    /**
+     * History scores are halved when one of them reaches this value, so the recent cutoffs count more.
+     */
+    private static final int MAX_HISTORY = 1 << 20;
+
+    private final Heuristic captureHeuristic;
+
+    /**
+     * Butterfly history indexed by piece index ({@link chess.util.Bitboards#pieceIndex}) and destination square.
+     */
+    private final int[][] history = new int[12][64];
+
+    /**
+     * Countermoves indexed by piece index and destination square of the opponent's previous move.
+     */
+    private final int[][] countermoves = new int[12][64];
+
+    public HistoryHeuristic() {
+        this(new MvvLvaHeuristic());
+    }
+
+    /**
+     * @param captureHeuristic heuristic used for scoring captures and promotions
+     */
+    public HistoryHeuristic(Heuristic captureHeuristic) {
+        this.captureHeuristic = captureHeuristic;
+    }
+
+    @Override
+    public List<Move> sortByHeuristic(Position position, List<Figure> figures) {
+        return captureHeuristic.sortByHeuristic(position, figures);
+    }
+
+    @Override
+    public int score(Position position, int move) {
+        if(PackedMove.isCapture(move) || PackedMove.isPromotion(move)) {
+            return captureHeuristic.score(position, move);
+        }
+        int score = history[PackedMove.piece(move)][PackedMove.to(move)];
+        int previous = position.getLastMove();
+        if(previous != PackedMove.NONE && countermoves[PackedMove.piece(previous)][PackedMove.to(previous)] == move) {
+            score += COUNTERMOVE_BONUS;
+        }
+        return score;
+    }
+
+    @Override
+    public void newSearch() {
+        captureHeuristic.newSearch();
+        for(int i = 0; i < history.length; i++) {
+            Arrays.fill(history[i], 0);
+            Arrays.fill(countermoves[i], PackedMove.NONE);
+        }
+    }
+
+    @Override
+    public void cutoff(Position position, int move, int depth) {
+        captureHeuristic.cutoff(position, move, depth);
+        if(PackedMove.isCapture(move) || PackedMove.isPromotion(move)) {
+            return;
+        }
+        int[] pieceHistory = history[PackedMove.piece(move)];
+        int to = PackedMove.to(move);
+        pieceHistory[to] += depth * depth;
+        if(pieceHistory[to] >= MAX_HISTORY) {
+            for(int[] h : history) {
+                for(int i = 0; i < h.length; i++) {
+                    h[i] /= 2;
+                }
+            }
+        }
+        int previous = position.getLastMove();
+        if(previous != PackedMove.NONE) {
+            countermoves[PackedMove.piece(previous)][PackedMove.to(previous)] = move;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package chess.searchalgorithms.heuristics;
+
+import chess.game.Position;
+import chess.pieces.Figure;
+import chess.util.Bitboards;
+import chess.util.Coordinate;
+import chess.util.Move;
+import chess.util.PackedMove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * MvvLvaHeuristic orders captures by the most valuable victim and, of captures of the same victim, by the least valuable attacker.
+ * Every move gets one integer key, value of the victim times 16 minus value of the attacker, and promotions are boosted by value of
+ * the new piece as if it was captured. Quiet moves have key 0.
+ * <p>
+ * Unlike {@link CheckTakingHeuristic} moves are sorted only once: keys are computed into a primitive array together with the index of the move
+ * and the array is sorted, so the order is found in O(n log n) and moves with equal keys keep the order in which they were generated.
+ */
+public class MvvLvaHeuristic implements Heuristic {
+
+    /**
+     * Attacker values are capped so that they never outweigh one step of victim value, the king is the most valuable attacker.
+     */
+    private static final int MAX_ATTACKER_VALUE = 15;
+
+    @Override
+    public List<Move> sortByHeuristic(Position position, List<Figure> figures) {
+        List<Move> moves = new ArrayList<>();
+        for(Figure f : figures) {
+            for(Coordinate c : f.possibleMoves(position)) {
+                moves.add(new Move(f, c));
+            }
+        }
+        // key in the high half, index in the low half, negated key sorts the best moves first
+        long[] keys = new long[moves.size()];
+        for(int i = 0; i < keys.length; i++) {
+            keys[i] = (long) -key(position, moves.get(i)) << 32 | i;
+        }
+        Arrays.sort(keys);
+        List<Move> sorted = new ArrayList<>(keys.length);
+        for(long key : keys) {
+            sorted.add(moves.get((int) key));
+        }
+        return sorted;
+    }
+
+    @Override
+    public int score(Position position, int move) {
+        int score = 0;
+        if(PackedMove.isCapture(move)) {
+            score += key(Bitboards.typeOf(PackedMove.captured(move)), Bitboards.typeOf(PackedMove.piece(move)));
+        }
+        if(PackedMove.isPromotion(move)) {
+            score += Bitboards.VALUES[Bitboards.typeOf(PackedMove.promotion(move))] * 16;
+        }
+        return score;
+    }
+
+    /**
+     * Returns key of given move, same as {@link MvvLvaHeuristic#score} of the {@link PackedMove}.
+     */
+    private static int key(Position position, Move move) {
+        Coordinate c = move.getCoordinate();
+        Figure victim = position.getFigure(c.getX(), c.getY());
+        Figure attacker = move.getFigure();
+        boolean pawn = attacker.getSymbol() == Bitboards.SYMBOLS[Bitboards.PAWN];
+        int key = 0;
+        if(victim != null) {
+            key += victim.getValue() * 16 - Math.min(attacker.getValue(), MAX_ATTACKER_VALUE);
+        } else if(pawn && c.getY() != attacker.getyCoordinate()) {
+            key += key(Bitboards.PAWN, Bitboards.PAWN); // en passant
+        }
+        if(pawn && (c.getX() == 0 || c.getX() == 7)) {
+            key += Bitboards.VALUES[Bitboards.QUEEN] * 16;
+        }
+        return key;
+    }
+
+    /**
+     * Returns key of capture of victim of given type by attacker of given type.
+     */
+    private static int key(int victim, int attacker) {
+        return Bitboards.VALUES[victim] * 16 - Math.min(Bitboards.VALUES[attacker], MAX_ATTACKER_VALUE);
+    }
+}
@@ -0,0 +1,344 @@
+package chess.util;
+
+/**
+ * Class offers constants and static methods for working with bitboards. Bitboard is a 64-bit long where every bit represents one square of the board.
+ * Square index is calculated as x * 8 + y where (x, y) is the same coordinate used by {@link Coordinate}, so bit 0 is the top left corner of the board
+ * and bit 63 is bottom right corner.
+ * Sliding piece attacks are looked up from magic bitboard tables that are filled when class is loaded.
+ */
+public class Bitboards {
+
+    /**
+     * Piece types. Index of a piece of some color is type + 6 * {@link Color#getValue()}.
+     */
+    public static final int PAWN = 0;
+    public static final int KNIGHT = 1;
+    public static final int BISHOP = 2;
+    public static final int ROOK = 3;
+    public static final int QUEEN = 4;
+    public static final int KING = 5;
+
+    /**
+     * Value used for empty square.
+     */
+    public static final int EMPTY = -1;
+
+    /**
+     * Values of piece types, same as {@link chess.pieces.Figure#getValue()}.
+     */
+    public static final int[] VALUES = new int[] {1, 3, 3, 5, 9, 1000};
+
+    /**
+     * Symbols of piece types, same as {@link chess.pieces.Figure#getSymbol()}.
+     */
+    public static final char[] SYMBOLS = new char[] {'P', 'N', 'B', 'R', 'Q', 'K'};
+
+    /**
+     * Pawns that are moving towards row 0 (up the board).
+     */
+    public static final int UP = 0;
+
+    /**
+     * Pawns that are moving towards row 7 (down the board).
+     */
+    public static final int DOWN = 1;
+
+    /**
+     * Squares attacked by knight standing on given square.
+     */
+    public static final long[] KNIGHT_ATTACKS = new long[64];
+
+    /**
+     * Squares attacked by king standing on given square.
+     */
+    public static final long[] KING_ATTACKS = new long[64];
+
+    /**
+     * Squares attacked by pawn standing on given square, first index is {@link #UP} or {@link #DOWN}.
+     */
+    public static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    /**
+     * Relevant occupancy masks for magic lookup, squares on the edge of the ray are left out because they don't change attacks.
+     */
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] BISHOP_MASKS = new long[64];
+
+    /**
+     * Magic multipliers that map every relevant occupancy of a square to a unique index (or an index with the same attacks).
+     * Numbers were found by random search of sparse numbers for square numbering used in this class.
+     */
+    private static final long[] ROOK_MAGICS = new long[] {
+            0x0180002040001A80L, 0x0840001006200040L, 0x0C801000802000D8L, 0x0900041001002008L,
+            0x0080080004008002L, 0x2200081002000144L, 0x1080020000800100L, 0xA080050008204080L,
+            0x4010800020400080L, 0x6241004001002085L, 0x0108801003882000L, 0x4050801000480380L,
+            0x0C20808004000800L, 0x2020800400808200L, 0x0405000200040100L, 0x8060800080015700L,
+            0x808000C000200040L, 0x2070004000402000L, 0x0000110041002001L, 0x0008008010000880L,
+            0x0108010009050010L, 0x0422008004000280L, 0x2000040008014210L, 0x2020020021008044L,
+            0x00B0802480004000L, 0x004000A0A0081000L, 0x310041010010200AL, 0x2010080080100080L,
+            0x0104008080080004L, 0x0040040080020080L, 0x2200084400011042L, 0xC040010200088054L,
+            0x5030204008800082L, 0x000482E005804000L, 0x4044100088802000L, 0x2010010008080080L,
+            0x0208004200400401L, 0x6045401088012004L, 0x8400421004000108L, 0x110000410A001084L,
+            0x4000802040008000L, 0x3202008041020022L, 0x4281002000410010L, 0x0400080010008080L,
+            0x0008004020040400L, 0x8000C00420080110L, 0x0041000200110044L, 0x2001000040810022L,
+            0x0000408001002100L, 0x0008884000200880L, 0x0060080041100140L, 0x0000201001000900L,
+            0x0188000A04008080L, 0x0003800200040080L, 0x000900040A002900L, 0x02081081005C0200L,
+            0x1808401200208902L, 0x0810400020821103L, 0x0880090020001041L, 0x6492250048211001L,
+            0x0042000410082002L, 0x0012008441100802L, 0x04E1421008014084L, 0x8002111020840042L
+    };
+    private static final long[] BISHOP_MAGICS = new long[] {
+            0x06884D280820C180L, 0x8102100401005004L, 0x0010008218480000L, 0x0228208923020200L,
+            0x0104042050012000L, 0x4002080484000000L, 0x0001211130400828L, 0x04C6010101412022L,
+            0x0100415004008482L, 0x8005888104040040L, 0x00602200A4008005L, 0x3000080845000313L,
+            0x0440420210001040L, 0x00004208024A1001L, 0x0003060241200800L, 0x40080100A0904801L,
+            0x8020809020220080L, 0x1802800418180102L, 0x0010012880204302L, 0x008C800802044000L,
+            0x1404000080E02004L, 0x006080080A100208L, 0x100400010C020300L, 0x4081040080809002L,
+            0x0004205010200190L, 0x00010400A8081860L, 0x0044880040524100L, 0x210200220A008200L,
+            0x8C25808050082000L, 0x0110410004900805L, 0x0004404104880400L, 0x0000910808840080L,
+            0x4208044002131218L, 0x0241100200280851L, 0x0004040200841424L, 0x0901400808408200L,
+            0x0410008200002200L, 0x0010204080031004L, 0x0008008400209241L, 0x0008210530004204L,
+            0x2102100220080840L, 0x0004A40420401200L, 0x2042020024004205L, 0x000B004208000480L,
+            0x08C0401091000204L, 0x8001200800400080L, 0x4449081D04000042L, 0x0002020042021102L,
+            0x2264040108084000L, 0x3002444808080020L, 0x0CC0608400880200L, 0x0500024484041424L,
+            0x2500081122020222L, 0x4002100208084041L, 0x0C08100108010490L, 0x00A0084200803010L,
+            0x1442010088040281L, 0xC030104202100248L, 0x1820901824022200L, 0x0000201802842400L,
+            0x0000214010020210L, 0x0888021020210102L, 0x2002200810A10448L, 0x084081220404C980L
+    };
+
+    /**
+     * Shift applied to (occupancy * magic), equals 64 - number of relevant squares.
+     */
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+
+    /**
+     * Attack tables indexed by square and magic index.
+     */
+    private static final long[][] ROOK_TABLE = new long[64][];
+    private static final long[][] BISHOP_TABLE = new long[64][];
+
+    /**
+     * Squares strictly between two squares that are on the same line or diagonal, otherwise empty.
+     */
+    private static final long[][] BETWEEN = new long[64][64];
+
+    /**
+     * Whole line or diagonal (edge to edge) that goes through two squares, otherwise empty.
+     */
+    private static final long[][] LINE = new long[64][64];
+
+    private static final int[][] ROOK_DIRECTIONS = new int[][] {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+    private static final int[][] BISHOP_DIRECTIONS = new int[][] {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    static {
+        int[][] knight = new int[][] {{1, 2}, {2, 1}, {-1, 2}, {-2, 1}, {1, -2}, {-1, -2}, {2, -1}, {-2, -1}};
+        int[][] king = new int[][] {{1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+        for(int square = 0; square < 64; square++) {
+            int x = x(square);
+            int y = y(square);
+            for(int[] offset : knight) {
+                KNIGHT_ATTACKS[square] |= bitIfOnBoard(x + offset[0], y + offset[1]);
+            }
+            for(int[] offset : king) {
+                KING_ATTACKS[square] |= bitIfOnBoard(x + offset[0], y + offset[1]);
+            }
+            PAWN_ATTACKS[UP][square] = bitIfOnBoard(x - 1, y - 1) | bitIfOnBoard(x - 1, y + 1);
+            PAWN_ATTACKS[DOWN][square] = bitIfOnBoard(x + 1, y - 1) | bitIfOnBoard(x + 1, y + 1);
+        }
+        for(int square = 0; square < 64; square++) {
+            ROOK_MASKS[square] = relevantMask(square, ROOK_DIRECTIONS);
+            ROOK_SHIFTS[square] = 64 - Long.bitCount(ROOK_MASKS[square]);
+            ROOK_TABLE[square] = fillTable(square, ROOK_MASKS[square], ROOK_MAGICS[square], ROOK_SHIFTS[square], ROOK_DIRECTIONS);
+            BISHOP_MASKS[square] = relevantMask(square, BISHOP_DIRECTIONS);
+            BISHOP_SHIFTS[square] = 64 - Long.bitCount(BISHOP_MASKS[square]);
+            BISHOP_TABLE[square] = fillTable(square, BISHOP_MASKS[square], BISHOP_MAGICS[square], BISHOP_SHIFTS[square], BISHOP_DIRECTIONS);
+        }
+        for(int a = 0; a < 64; a++) {
+            for(int b = 0; b < 64; b++) {
+                if(a == b) {
+                    continue;
+                }
+                long bitA = bit(a);
+                long bitB = bit(b);
+                if((rookAttacks(a, 0) & bitB) != 0) {
+                    BETWEEN[a][b] = rookAttacks(a, bitB) & rookAttacks(b, bitA);
+                    LINE[a][b] = (rookAttacks(a, 0) & rookAttacks(b, 0)) | bitA | bitB;
+                } else if((bishopAttacks(a, 0) & bitB) != 0) {
+                    BETWEEN[a][b] = bishopAttacks(a, bitB) & bishopAttacks(b, bitA);
+                    LINE[a][b] = (bishopAttacks(a, 0) & bishopAttacks(b, 0)) | bitA | bitB;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns square index for given (x, y) coordinate.
+     */
+    public static int square(int x, int y) {
+        return x * 8 + y;
+    }
+
+    /**
+     * Returns x coordinate of given square.
+     */
+    public static int x(int square) {
+        return square >>> 3;
+    }
+
+    /**
+     * Returns y coordinate of given square.
+     */
+    public static int y(int square) {
+        return square & 7;
+    }
+
+    /**
+     * Returns bitboard with only given square set.
+     */
+    public static long bit(int square) {
+        return 1L << square;
+    }
+
+    /**
+     * Returns bitboard with only (x, y) square set, or empty bitboard if coordinate is outside of the board.
+     */
+    private static long bitIfOnBoard(int x, int y) {
+        if(x < 0 || x > 7 || y < 0 || y > 7) {
+            return 0;
+        }
+        return bit(square(x, y));
+    }
+
+    /**
+     * Returns piece index for given color and piece type.
+     */
+    public static int pieceIndex(Color color, int type) {
+        return type + 6 * color.getValue();
+    }
+
+    /**
+     * Returns piece type of given piece index.
+     */
+    public static int typeOf(int piece) {
+        return piece % 6;
+    }
+
+    /**
+     * Returns color of given piece index.
+     */
+    public static Color colorOf(int piece) {
+        return piece < 6 ? Color.WHITE : Color.BLACK;
+    }
+
+    /**
+     * Returns piece type for given figure symbol.
+     */
+    public static int typeOf(char symbol) {
+        switch(symbol) {
+            case 'P':
+                return PAWN;
+            case 'N':
+                return KNIGHT;
+            case 'B':
+                return BISHOP;
+            case 'R':
+                return ROOK;
+            case 'Q':
+                return QUEEN;
+            case 'K':
+                return KING;
+            default:
+                throw new IllegalArgumentException("Invalid symbol");
+        }
+    }
+
+    /**
+     * Returns squares attacked by rook on given square. Attacks stop on first occupied square in every direction, occupied square is included.
+     * @param square square of the rook
+     * @param occupied all occupied squares
+     */
+    public static long rookAttacks(int square, long occupied) {
+        return ROOK_TABLE[square][(int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+    }
+
+    /**
+     * Returns squares attacked by bishop on given square. Attacks stop on first occupied square in every direction, occupied square is included.
+     * @param square square of the bishop
+     * @param occupied all occupied squares
+     */
+    public static long bishopAttacks(int square, long occupied) {
+        return BISHOP_TABLE[square][(int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+    }
+
+    /**
+     * Returns squares strictly between given squares if they are on the same line or diagonal, otherwise empty bitboard.
+     */
+    public static long between(int a, int b) {
+        return BETWEEN[a][b];
+    }
+
+    /**
+     * Returns whole line or diagonal that goes through given squares, otherwise empty bitboard.
+     */
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+
+    /**
+     * Returns squares attacked by queen on given square.
+     */
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * Creates attack table for given square by walking rays for every subset of the relevant mask and storing attacks to magic index.
+     */
+    private static long[] fillTable(int square, long mask, long magic, int shift, int[][] directions) {
+        long[] table = new long[1 << Long.bitCount(mask)];
+        long subset = 0;
+        do {
+            table[(int) ((subset * magic) >>> shift)] = slidingAttacks(square, subset, directions);
+            subset = (subset - mask) & mask;
+        } while(subset != 0);
+        return table;
+    }
+
+    /**
+     * Returns squares that can change slider attacks on given square, i.e. rays without the last square on the edge of the board.
+     */
+    private static long relevantMask(int square, int[][] directions) {
+        long mask = 0;
+        for(int[] direction : directions) {
+            int x = x(square) + direction[0];
+            int y = y(square) + direction[1];
+            while(x + direction[0] >= 0 && x + direction[0] <= 7 && y + direction[1] >= 0 && y + direction[1] <= 7) {
+                mask |= bit(square(x, y));
+                x += direction[0];
+                y += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Walks from given square in every direction until the edge of the board or first occupied square. Used only to fill magic tables.
+     */
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0;
+        for(int[] direction : directions) {
+            int x = x(square) + direction[0];
+            int y = y(square) + direction[1];
+            while(x >= 0 && x <= 7 && y >= 0 && y <= 7) {
+                long bit = bit(square(x, y));
+                attacks |= bit;
+                if((occupied & bit) != 0) {
+                    break;
+                }
+                x += direction[0];
+                y += direction[1];
+            }
+        }
+        return attacks;
+    }
+}
@@ -45,11 +45,21 @@ public class ChessUtil {
      */
     public static final double STALEMATE = 999;
 
+    /**
+     * Score search algorithms give to the position where one side is checkmated. It has to be greater than any evaluation of material.
+     */
+    public static final double MATE_SCORE = 1000000;
+
     /**
      * Default depth level.
      */
     public static int DEPTH = 2;
 
+    /**
+     * Maximum depth any search algorithm can reach, used for sizing per-depth buffers.
+     */
+    public static final int MAX_DEPTH = 64;
+
     /**
      * Move counter. Starts from 1.
      */
@@ -154,158 +164,44 @@ public class ChessUtil {
 
     }
 
-    /**
-     * Method fills list of coordinates that given figure can go to depending on move pattern provided in arguments.
-     * This is used for movement down the line.
-     * @param figure should be instance of Rook or Queen class, otherwise exception is thrown
-     * @param coordinates list of coordinates to be filled
-     * @param length how many squares to look at
-     * @param pattern +0, 0+, -0, 0- (for example +0 means: positive direction on x axis and no movement on y axis)
-     */
-    public static void fillCoordinatesListForLines(Figure figure, List<Coordinate> coordinates, int length, String pattern, Position position) {
-        for(int i = 0; i < length; i++) {
-            try {
-                Coordinate c = null;
-                switch(pattern) {
-                    case "+0":
-                        c = new Coordinate(figure.getxCoordinate() + i + 1, figure.getyCoordinate());
-                        break;
-                    case "0+":
-                        c = new Coordinate(figure.getxCoordinate(), figure.getyCoordinate() + i + 1);
-                        break;
-                    case "-0":
-                        c = new Coordinate(figure.getxCoordinate() - i - 1, figure.getyCoordinate());
-                        break;
-                    case "0-":
-                        c = new Coordinate(figure.getxCoordinate(), figure.getyCoordinate() - i - 1);
-                        break;
-                }
-                if(!filterCoordinates(figure, c, position, coordinates)){
-                    return;
-                }
-            }
-            catch(IllegalArgumentException e) {
-                e.printStackTrace();
-            }
-        }
-    }
-
-    /**
-     * Method fills list of coordinates that given figure can go to depending on move pattern provided in arguments.
-     * This is used for diagonal movement.
-     * @param figure should be instance of Rook or Queen class, otherwise exception is thrown
-     * @param coordinates list of coordinates to be filled
-     * @param length how many squares to look at
-     * @param pattern +-, -+, --, ++ (for example +- means: positive direction on x axis and negative on y axis)
-     */
-    public static void fillCoordinatesListForDiagonals(Figure figure, List<Coordinate> coordinates, int length, String pattern, Position position) {
-        for(int i = 0; i < length; i++) {
-            try {
-                Coordinate c = null;
-                switch(pattern) {
-                    case "++":
-                        c = new Coordinate(figure.getxCoordinate() + i + 1, figure.getyCoordinate() + i + 1);
-                        break;
-                    case "+-":
-                        c = new Coordinate(figure.getxCoordinate() + i + 1, figure.getyCoordinate() - i - 1);
-                        break;
-                    case "-+":
-                        c = new Coordinate(figure.getxCoordinate() - i - 1, figure.getyCoordinate() + i + 1);
-                        break;
-                    case "--":
-                        c = new Coordinate(figure.getxCoordinate() - i - 1, figure.getyCoordinate() - i - 1);
-                        break;
-                }
-                if(!filterCoordinates(figure, c, position, coordinates)) {
-                    return;
-                }
-            }
-            catch(IllegalArgumentException e) {
-                e.printStackTrace();
-            }
-        }
-    }
-
     /**
      * Returns list of coordinates that given figure instance attacks or defends.
+     * Attacks are looked up from magic bitboard tables ({@link Bitboards#rookAttacks}, {@link Bitboards#bishopAttacks}) using occupancy of the position.
+     * Squares occupied by figures of the same color are left out.
      */
     public static List<Coordinate> attackOrDefend(Figure figure, boolean attack, Position position) {
-        List<Coordinate> coordinates = new ArrayList<>();
-        int top = figure.getxCoordinate();
-        int bottom = 7 - figure.getxCoordinate();
-        int left = figure.getyCoordinate();
-        int right = 7 - figure.getyCoordinate();
-
+        int square = Bitboards.square(figure.getxCoordinate(), figure.getyCoordinate());
+        long occupied = position.getOccupied();
+        long attacks = 0;
         if(figure instanceof Rook || figure instanceof Queen) {
-            fillCoordinatesListForLines(figure, coordinates, top, "-0", position);
-            fillCoordinatesListForLines(figure, coordinates, bottom, "+0", position);
-            fillCoordinatesListForLines(figure, coordinates, left, "0-", position);
-            fillCoordinatesListForLines(figure, coordinates, right, "0+", position);
+            attacks |= Bitboards.rookAttacks(square, occupied);
         }
-
         if(figure instanceof Bishop || figure instanceof Queen) {
-            int topLeft = Math.min(top, left);
-            int topRight = Math.min(top, right);
-            int bottomLeft = Math.min(bottom, left);
-            int bottomRight = Math.min(bottom, right);
-
-            fillCoordinatesListForDiagonals(figure, coordinates, topLeft, "--", position);
-            fillCoordinatesListForDiagonals(figure, coordinates, topRight, "-+", position);
-            fillCoordinatesListForDiagonals(figure, coordinates, bottomLeft, "+-", position);
-            fillCoordinatesListForDiagonals(figure, coordinates, bottomRight, "++", position);
+            attacks |= Bitboards.bishopAttacks(square, occupied);
         }
-        return coordinates;
+        return toCoordinates(attacks & ~position.getOccupancy(figure.getColor()));
     }
 
     /**
-     * Method filters through list of possible moves and removes ones that are prevented by check.
+     * Converts bitboard to list of coordinates.
      */
-    public static List<Coordinate> filterPossibleMoves(Position position, Figure figure, List<Coordinate> coordinates) {
-        try {
-            List<Coordinate> coordinates2 = new ArrayList<>();
-            Coordinate king = position.getFigureCoordinate(figure.getColor(), 'K');
-            int x = figure.getxCoordinate();
-            int y = figure.getyCoordinate();
-            coordinates2.addAll(coordinates);
-            for(Coordinate c : coordinates) {
-                Figure f = position.getFigure(c);
-                position.setFigure(x, y, c.getX(), c.getY());
-                if(position.numberOfAttackers(king.getX(), king.getY(), figure.getColor() == Color.WHITE ? Color.BLACK : Color.WHITE) > 0) {
-                    coordinates2.remove(c);
-                }
-                position.setFigureBack(c.getX(), c.getY(), x, y, f);
-            }
-            return coordinates2;
-        } catch (NullPointerException e) {
-            e.printStackTrace();
+    public static List<Coordinate> toCoordinates(long bitboard) {
+        List<Coordinate> coordinates = new ArrayList<>(Long.bitCount(bitboard));
+        while(bitboard != 0) {
+            int square = Long.numberOfTrailingZeros(bitboard);
+            coordinates.add(new Coordinate(Bitboards.x(square), Bitboards.y(square)));
+            bitboard &= bitboard - 1;
         }
-        return null;
-    }
-
-    /**
-     * Method filters coordinates depending on #attacking parameter.
-     */
-    private static boolean filterCoordinates(Figure figure, Coordinate c, Position position, List<Coordinate> coordinates) {
-        Figure piece = position.getFigure(c.getX(), c.getY());
-        if(piece != null && piece.getColor() != figure.getColor()) {
-            coordinates.add(c);
-            return false;
-        } else if(piece != null && piece.getColor() == figure.getColor()) {
-            return false;
-        }
-        coordinates.add(c);
-        return true;
+        return coordinates;
     }
 
-
     /**
      * Method checks if it is checkmate or stalemate. Used as terminate function in {@link chess.searchalgorithms.SearchAlgorithm}.
      * @return 0 if it is neither, {@link ChessUtil#CHECKMATE} or {@link ChessUtil#STALEMATE}
      */
     public static int isCheckMateOrStalemate(Position position, Color opponentColor, Color color) {
-        Coordinate kingCoordinate = position.getFigureCoordinate(color, 'K');
         if (position.allPossibleMoves(color) == 0) {
-            if (position.numberOfAttackers(kingCoordinate.getX(), kingCoordinate.getY(), opponentColor) > 0) {
+            if (position.isInCheck(color)) {
                 return (int) CHECKMATE;
             } else {
                 return (int) STALEMATE;
@@ -0,0 +1,128 @@
+package chess.util;
+
+/**
+ * Class offers static methods for moves packed into a single int. Packed moves are used by {@link chess.searchalgorithms.SearchAlgorithm}s
+ * instead of {@link Move} so that move generation doesn't allocate objects. Bits of the move are:
+ * <ul>
+ *     <li>0-5 - square from which piece is moved ({@link Bitboards#square})</li>
+ *     <li>6-11 - square to which piece is moved</li>
+ *     <li>12-15 - moved piece ({@link Bitboards#pieceIndex})</li>
+ *     <li>16-19 - captured piece + 1, 0 if nothing is captured</li>
+ *     <li>20-23 - piece pawn promotes to + 1, 0 if move is not promotion</li>
+ *     <li>24-27 - flags ({@link #DOUBLE_PUSH}, {@link #EN_PASSANT}, {@link #CASTLING})</li>
+ * </ul>
+ */
+public class PackedMove {
+
+    /**
+     * Value that doesn't represent any move.
+     */
+    public static final int NONE = 0;
+
+    /**
+     * Pawn moved two squares.
+     */
+    public static final int DOUBLE_PUSH = 1;
+
+    /**
+     * Pawn captured en passant.
+     */
+    public static final int EN_PASSANT = 2;
+
+    /**
+     * King castled.
+     */
+    public static final int CASTLING = 4;
+
+    /**
+     * Maximum number of moves in any position, used as size of move buffers.
+     */
+    public static final int MAX_MOVES = 256;
+
+    /**
+     * Packs move.
+     * @param from square from which piece is moved
+     * @param to square to which piece is moved
+     * @param piece moved piece
+     * @param captured captured piece or {@link Bitboards#EMPTY}
+     * @param promotion piece pawn promotes to or {@link Bitboards#EMPTY}
+     * @param flags combination of {@link #DOUBLE_PUSH}, {@link #EN_PASSANT} and {@link #CASTLING}
+     */
+    public static int encode(int from, int to, int piece, int captured, int promotion, int flags) {
+        return from | (to << 6) | (piece << 12) | ((captured + 1) << 16) | ((promotion + 1) << 20) | (flags << 24);
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static int piece(int move) {
+        return (move >>> 12) & 0xF;
+    }
+
+    /**
+     * Returns captured piece or {@link Bitboards#EMPTY}.
+     */
+    public static int captured(int move) {
+        return ((move >>> 16) & 0xF) - 1;
+    }
+
+    /**
+     * Returns piece pawn promotes to or {@link Bitboards#EMPTY}.
+     */
+    public static int promotion(int move) {
+        return ((move >>> 20) & 0xF) - 1;
+    }
+
+    public static int flags(int move) {
+        return (move >>> 24) & 0xF;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & 0xF0000) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & 0xF00000) != 0;
+    }
+
+    /**
+     * Returns 16 bit form of the move with only from and to squares and promotion, used where space matters, for example in
+     * {@link chess.searchalgorithms.TranspositionTable}. These fields are enough to find the move among moves generated for the position.
+     */
+    public static int toShort(int move) {
+        return (move & 0xFFF) | ((move >>> 8) & 0xF000);
+    }
+
+    /**
+     * Returns move with from and to squares and promotion of given 16 bit form ({@link #toShort}). Other fields are empty.
+     */
+    public static int fromShort(int move) {
+        return (move & 0xFFF) | ((move & 0xF000) << 8);
+    }
+
+    /**
+     * Checks whether two moves have the same from and to squares and promotion. Moves of the same position with these fields equal are the same move.
+     */
+    public static boolean isSameMove(int move, int other) {
+        return toShort(move) == toShort(other);
+    }
+
+    /**
+     * Returns coordinate to which piece is moved.
+     */
+    public static Coordinate toCoordinate(int move) {
+        return new Coordinate(Bitboards.x(to(move)), Bitboards.y(to(move)));
+    }
+
+    /**
+     * Returns move as from and to coordinates, for example "6-4 4-4".
+     */
+    public static String toString(int move) {
+        return Bitboards.x(from(move)) + "-" + Bitboards.y(from(move)) + " " + Bitboards.x(to(move)) + "-" + Bitboards.y(to(move));
+    }
+}
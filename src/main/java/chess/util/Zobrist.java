@@ -0,0 +1,46 @@
+package chess.util;
+
+import java.util.Random;
+
+/**
+ * Class offers random numbers used for Zobrist hashing of positions. Key of a position is xor of numbers for every piece on its square,
+ * side to move, castling rights and file of en passant pawn. Numbers are generated from fixed seed so keys are the same in every run.
+ */
+public class Zobrist {
+
+    /**
+     * Number for every piece ({@link Bitboards#pieceIndex}) on every square.
+     */
+    public static final long[][] PIECES = new long[12][64];
+
+    /**
+     * Number for every combination of castling rights.
+     */
+    public static final long[] CASTLING = new long[16];
+
+    /**
+     * Number for every file (y coordinate) of pawn that can be captured en passant.
+     */
+    public static final long[] EN_PASSANT = new long[8];
+
+    /**
+     * Number used when black is to move.
+     */
+    public static final long BLACK_TO_MOVE;
+
+    static {
+        Random random = new Random(0x5EED_C4E55L);
+        for(int piece = 0; piece < 12; piece++) {
+            for(int square = 0; square < 64; square++) {
+                PIECES[piece][square] = random.nextLong();
+            }
+        }
+        for(int i = 0; i < CASTLING.length; i++) {
+            CASTLING[i] = random.nextLong();
+        }
+        for(int i = 0; i < EN_PASSANT.length; i++) {
+            EN_PASSANT[i] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+}